@@ -0,0 +1,106 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * AccessCounters counts how often every key is found and how often every dummy key is reached by a
+ * search. the counts are split over a few stripes and each thread adds to the stripe picked by its id,
+ * so threads on different stripes never write to the same counter. the stripes are only added up when
+ * the counts are read.
+ *
+ * @category Dynamic Programming
+ */
+public class AccessCounters {
+
+	// number of keys
+	private final int keys;
+	// stripes[s] holds the counts of keys 0 .. keys - 1, followed by those of gaps 0 .. keys
+	private final AtomicLongArray[] stripes;
+	// stripes.length - 1, the number of stripes is a power of two
+	private final int mask;
+
+	/**
+	 * AccessCounters constructor with one stripe for every processor, rounded up to a power of two
+	 *
+	 * @param keys - the number of keys
+	 */
+	public AccessCounters( int keys ) {
+		this( keys, Runtime.getRuntime().availableProcessors() );
+	}
+
+	/**
+	 * AccessCounters constructor
+	 *
+	 * @param keys - the number of keys
+	 * @param stripes - the number of stripes, rounded up to a power of two
+	 */
+	public AccessCounters( int keys, int stripes ) {
+		int count = 1;
+		while ( count < stripes ) {
+			count <<= 1;
+		}
+		this.keys = keys;
+		this.stripes = new AtomicLongArray[ count ];
+		for ( int s = 0; s < count; s++ ) {
+			this.stripes[ s ] = new AtomicLongArray( 2 * keys + 1 );
+		}
+		mask = count - 1;
+	}
+
+	/**
+	 * record counts the result of a search
+	 *
+	 * @param result - the result of LookupTree.search, a key position or -( gap ) - 1
+	 */
+	public void record( int result ) {
+		int counter = result >= 0 ? result : keys - result - 1;
+		stripes[ ( int ) Thread.currentThread().getId() & mask ].getAndIncrement( counter );
+	}
+
+	/**
+	 * getKeyCounts adds up how often every key was found
+	 *
+	 * @return - array of longs with the count of keys 0 .. keys - 1
+	 */
+	public long[] getKeyCounts() {
+		return sum( 0, keys );
+	}
+
+	/**
+	 * getGapCounts adds up how often every dummy key was reached
+	 *
+	 * @return - array of longs with the count of gaps 0 .. keys
+	 */
+	public long[] getGapCounts() {
+		return sum( keys, keys + 1 );
+	}
+
+	/**
+	 * drain adds up the counts like getKeyCounts and getGapCounts and sets them back to 0. a count
+	 * made at the same moment ends up either in the result or in the next drain, it is never lost
+	 *
+	 * @param keyCounts - array that receives the counts of the keys
+	 * @param gapCounts - array that receives the counts of the gaps
+	 */
+	public void drain( long[] keyCounts, long[] gapCounts ) {
+		for ( int c = 0; c < 2 * keys + 1; c++ ) {
+			long total = 0;
+			for ( AtomicLongArray stripe : stripes ) {
+				total += stripe.getAndSet( c, 0 );
+			}
+			if ( c < keys ) {
+				keyCounts[ c ] = total;
+			} else {
+				gapCounts[ c - keys ] = total;
+			}
+		}
+	}
+
+	private long[] sum( int from, int length ) {
+		long[] total = new long[ length ];
+		for ( AtomicLongArray stripe : stripes ) {
+			for ( int c = 0; c < length; c++ ) {
+				total[ c ] += stripe.get( from + c );
+			}
+		}
+		return total;
+	}
+}
@@ -0,0 +1,216 @@
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AdaptiveTreeHolder is an OptimalBinarySearchTreeHolder that learns the probabilities from the
+ * searches it serves. every search is counted in AccessCounters. a background check turns the counts
+ * since the last check into probabilities, builds the optimal tree for them and compares its expected
+ * cost with the expected cost of the current tree under the same probabilities. when the current tree
+ * is worse by more than the threshold, the new tree is published.
+ *
+ * @category Dynamic Programming
+ */
+public class AdaptiveTreeHolder {
+
+	// the tree that searches use
+	private final OptimalBinarySearchTreeHolder holder;
+	// the counts of the searches
+	private final AccessCounters counters;
+	// the keys of the tree and the options used for every rebuild
+	private final int[] keys;
+	private final SolverOptions options;
+	// relative amount the current cost may be above the optimal cost before the tree is rebuilt
+	private final double threshold;
+	// smallest number of searches a check needs, fewer are kept for the next check
+	private final long minimumSearches;
+
+	// metrics of the last check
+	private volatile double currentCost;
+	private volatile double optimalCost;
+	private volatile long rebuilds;
+	// checks run by start that failed, and the error of the last one
+	private volatile long failedChecks;
+	private volatile RuntimeException lastFailure;
+
+	/**
+	 * AdaptiveTreeHolder constructor
+	 *
+	 * @param keys - an array of keys
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param n - the number of keys
+	 * @param options - SolverOptions for the first build and every rebuild
+	 * @param threshold - rebuild when the current cost is above ( 1 + threshold ) times the optimal cost
+	 * @param minimumSearches - the smallest number of searches a check is based on, at least 1
+	 * @throws IllegalArgumentException when the input does not describe a tree, threshold is negative or
+	 *         not a number, or minimumSearches is below 1
+	 */
+	public AdaptiveTreeHolder( int[] keys, double[] p, double[] q, int n, SolverOptions options,
+			double threshold, long minimumSearches ) {
+		if ( !( threshold >= 0 ) ) {
+			throw new IllegalArgumentException( "the threshold must be at least 0, it is " + threshold );
+		}
+		if ( minimumSearches < 1 ) {
+			throw new IllegalArgumentException( "a check needs at least 1 search, minimumSearches is " + minimumSearches );
+		}
+		OptimalBinarySearchTree tree = new OptimalBinarySearchTree( keys, p, q, n, options );
+		this.holder = new OptimalBinarySearchTreeHolder( tree );
+		this.counters = new AccessCounters( n - 1 );
+		this.keys = keys.clone();
+		this.options = options;
+		this.threshold = threshold;
+		this.minimumSearches = minimumSearches;
+		this.currentCost = tree.getCost();
+		this.optimalCost = tree.getCost();
+		this.rebuilds = 0;
+	}
+
+	/**
+	 * search looks for a key in the current tree and counts the result
+	 *
+	 * @param key - the key to look for
+	 * @return - the position of the key when it is found, otherwise -( gap ) - 1
+	 */
+	public int search( int key ) {
+		int result = holder.search( key );
+		counters.record( result );
+		return result;
+	}
+
+	/**
+	 * start runs check on the executor at a fixed rate. a check that throws is counted in
+	 * getFailedChecks and the next checks still run, since an exception would cancel the schedule
+	 *
+	 * @param executor - ScheduledExecutorService to run the checks on
+	 * @param period - the time between two checks
+	 * @param unit - the unit of period
+	 * @return - ScheduledFuture that can be used to stop the checks
+	 */
+	public ScheduledFuture<?> start( ScheduledExecutorService executor, long period, TimeUnit unit ) {
+		return executor.scheduleAtFixedRate( () -> {
+			try {
+				check();
+			}
+			catch ( RuntimeException e ) {
+				lastFailure = e;
+				failedChecks++;
+			}
+		}, period, period, unit );
+	}
+
+	/**
+	 * check compares the current tree with the optimal tree for the searches since the last check,
+	 * and publishes the optimal tree when the current one has become too expensive
+	 *
+	 * @return - true when a new tree was published
+	 */
+	public synchronized boolean check() {
+		int n = keys.length + 1;
+		long total = 0;
+		for ( long count : counters.getKeyCounts() ) {
+			total += count;
+		}
+		for ( long count : counters.getGapCounts() ) {
+			total += count;
+		}
+		if ( total < minimumSearches ) {
+			// too few searches to go by, keep counting until the next check
+			return false;
+		}
+		long[] keyCounts = new long[ n - 1 ];
+		long[] gapCounts = new long[ n ];
+		counters.drain( keyCounts, gapCounts );
+		total = 0;
+		for ( long count : keyCounts ) {
+			total += count;
+		}
+		for ( long count : gapCounts ) {
+			total += count;
+		}
+
+		double[] p = new double[ n ];
+		double[] q = new double[ n ];
+		for ( int i = 0; i < n; i++ ) {
+			if ( i > 0 ) {
+				p[ i ] = ( double ) keyCounts[ i - 1 ] / total;
+			}
+			q[ i ] = ( double ) gapCounts[ i ] / total;
+		}
+		OptimalBinarySearchTree candidate = new OptimalBinarySearchTree( keys, p, q, n, options );
+		currentCost = holder.snapshot().expectedCost( p, q );
+		optimalCost = candidate.getCost();
+		if ( currentCost > optimalCost * ( 1 + threshold ) ) {
+			holder.publish( candidate );
+			currentCost = optimalCost;
+			rebuilds++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * snapshot returns the tree that searches use right now
+	 *
+	 * @return - LookupTree which is the current tree
+	 */
+	public LookupTree snapshot() {
+		return holder.snapshot();
+	}
+
+	/**
+	 * getCounters returns the counts of the searches since the last check
+	 *
+	 * @return - AccessCounters of this holder
+	 */
+	public AccessCounters getCounters() {
+		return counters;
+	}
+
+	/**
+	 * getCurrentCost returns the expected cost of the current tree under the probabilities
+	 * seen by the last check
+	 *
+	 * @return - double which is the expected cost
+	 */
+	public double getCurrentCost() {
+		return currentCost;
+	}
+
+	/**
+	 * getOptimalCost returns the expected cost of the optimal tree for the probabilities
+	 * seen by the last check
+	 *
+	 * @return - double which is the optimal expected cost
+	 */
+	public double getOptimalCost() {
+		return optimalCost;
+	}
+
+	/**
+	 * getRebuilds returns the number of times a new tree was published
+	 *
+	 * @return - long which is the number of rebuilds
+	 */
+	public long getRebuilds() {
+		return rebuilds;
+	}
+
+	/**
+	 * getFailedChecks returns the number of checks run by start that threw an exception
+	 *
+	 * @return - long which is the number of failed checks
+	 */
+	public long getFailedChecks() {
+		return failedChecks;
+	}
+
+	/**
+	 * getLastFailure returns the exception of the last check run by start that failed
+	 *
+	 * @return - RuntimeException of the last failed check, or null when none failed
+	 */
+	public RuntimeException getLastFailure() {
+		return lastFailure;
+	}
+}
@@ -0,0 +1,18 @@
+/**
+ * BuildListener is told about every phase of OptimalBinarySearchTree as soon as it is finished, so
+ * the times and counts can be passed on to a monitoring system while the tree is still being built.
+ * it is called on the thread that runs the phase.
+ *
+ * @category Dynamic Programming
+ */
+public interface BuildListener {
+
+	/**
+	 * phaseFinished is called after every phase
+	 *
+	 * @param phase - the phase that finished
+	 * @param nanoseconds - the time the phase took
+	 * @param metrics - BuildMetrics with every phase and count up to now
+	 */
+	void phaseFinished( OptimalBinarySearchTree.Phase phase, long nanoseconds, BuildMetrics metrics );
+}
@@ -0,0 +1,136 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BuildMetrics holds the times and counts of one build of an OptimalBinarySearchTree: the time of
+ * every phase, how many cells of the tables were calculated and how many roots were tried for them,
+ * the memory of the tables, and the height and expected number of comparisons of the finished tree.
+ * the counts are added up from every thread of the pool, so they are LongAdders.
+ *
+ * @category Dynamic Programming
+ */
+public class BuildMetrics {
+
+	// the engine that built the tree
+	private OptimalBinarySearchTree.Engine engine;
+	// the nanoseconds of every phase, by the ordinal of the phase
+	private long[] phaseNanos;
+	// the cells [i][j] with i <= j that were calculated, and the roots that were tried for them
+	private LongAdder cellsEvaluated;
+	private LongAdder candidatesScanned;
+	// the bytes of the expected costs, weights and roots tables together
+	private long tableBytes;
+	// the height of the tree, and the expected number of comparisons of a search
+	private int treeHeight;
+	private double expectedComparisons;
+
+	/**
+	 * BuildMetrics constructor with every time and count set to 0
+	 *
+	 * @param engine - the engine that builds the tree
+	 */
+	BuildMetrics( OptimalBinarySearchTree.Engine engine ) {
+		this.engine = engine;
+		phaseNanos = new long[ OptimalBinarySearchTree.Phase.values().length ];
+		cellsEvaluated = new LongAdder();
+		candidatesScanned = new LongAdder();
+	}
+
+	void addPhase( OptimalBinarySearchTree.Phase phase, long nanoseconds ) {
+		phaseNanos[ phase.ordinal() ] += nanoseconds;
+	}
+
+	void addCells( long cells, long candidates ) {
+		cellsEvaluated.add( cells );
+		candidatesScanned.add( candidates );
+	}
+
+	void setTableBytes( long tableBytes ) {
+		this.tableBytes = tableBytes;
+	}
+
+	void setTree( int treeHeight, double expectedComparisons ) {
+		this.treeHeight = treeHeight;
+		this.expectedComparisons = expectedComparisons;
+	}
+
+	/**
+	 * getEngine returns the engine that built the tree
+	 *
+	 * @return - the Engine
+	 */
+	public OptimalBinarySearchTree.Engine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * getPhaseNanos returns the time of a phase. the OUTPUT phase adds up every traversal that was printed
+	 *
+	 * @param phase - the phase
+	 * @return - long which is the time in nanoseconds, 0 when the phase has not run
+	 */
+	public long getPhaseNanos( OptimalBinarySearchTree.Phase phase ) {
+		return phaseNanos[ phase.ordinal() ];
+	}
+
+	/**
+	 * getCellsEvaluated returns the number of cells [i][j] with i <= j that were calculated
+	 *
+	 * @return - long which is the number of cells, 0 for the engines without tables
+	 */
+	public long getCellsEvaluated() {
+		return cellsEvaluated.sum();
+	}
+
+	/**
+	 * getCandidatesScanned returns the number of roots that were tried. for the table engines it is
+	 * the length of every r loop added up, for the APPROXIMATE engine it is the steps of the binary searches
+	 *
+	 * @return - long which is the number of roots tried
+	 */
+	public long getCandidatesScanned() {
+		return candidatesScanned.sum();
+	}
+
+	/**
+	 * getTableBytes returns the memory of the expected costs, weights and roots tables, which are
+	 * all allocated at the start of the build and kept until the end, so this is also the peak
+	 *
+	 * @return - long which is the number of bytes, 0 for the engines without tables
+	 */
+	public long getTableBytes() {
+		return tableBytes;
+	}
+
+	/**
+	 * getTreeHeight returns the number of nodes on the longest path from the root down
+	 *
+	 * @return - int which is the most comparisons a search can take
+	 */
+	public int getTreeHeight() {
+		return treeHeight;
+	}
+
+	/**
+	 * getExpectedComparisons returns the expected number of keys a search compares with. the cost
+	 * from the book counts one more than that for every miss, since it counts the dummy key a miss
+	 * ends in, so this is ( cost - q[0] - .. - q[n-1] ) divided by the total of the probabilities
+	 *
+	 * @return - double which is the expected number of comparisons
+	 */
+	public double getExpectedComparisons() {
+		return expectedComparisons;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder( "engine=" + engine );
+		for ( OptimalBinarySearchTree.Phase phase : OptimalBinarySearchTree.Phase.values() ) {
+			text.append( ' ' ).append( phase.name().toLowerCase() ).append( "Nanos=" ).append( getPhaseNanos( phase ) );
+		}
+		return text.append( " cellsEvaluated=" ).append( getCellsEvaluated() )
+				.append( " candidatesScanned=" ).append( getCandidatesScanned() )
+				.append( " tableBytes=" ).append( tableBytes )
+				.append( " treeHeight=" ).append( treeHeight )
+				.append( " expectedComparisons=" ).append( expectedComparisons ).toString();
+	}
+}
@@ -0,0 +1,77 @@
+/**
+ * CostTable is a table of doubles that is indexed the same way as the e and w tables
+ * from the book. the table has rows 0 .. n and columns 0 .. n - 1, but only the cells
+ * with 1 <= i <= n and i - 1 <= j <= n - 1 are used by the algorithm, so an implementation
+ * only has to store those.
+ * 
+ * @category Dynamic Programming
+ */
+public interface CostTable {
+
+	/**
+	 * getSize returns n, the table has n + 1 rows and n columns
+	 * 
+	 * @return - int which is n
+	 */
+	int getSize();
+
+	/**
+	 * getBytes returns the memory the table takes for its cells and indexes
+	 * 
+	 * @return - long which is the number of bytes
+	 */
+	long getBytes();
+
+	/**
+	 * contains checks if a cell is stored by the table. cells that are not stored are 0
+	 * 
+	 * @param i - row index
+	 * @param j - column index
+	 * @return - true when 1 <= i <= n and i - 1 <= j <= n - 1
+	 */
+	boolean contains( int i, int j );
+
+	/**
+	 * get returns the value of a cell that is stored by the table
+	 * 
+	 * @param i - row index
+	 * @param j - column index
+	 * @return - double which is the value of cell [i][j]
+	 */
+	double get( int i, int j );
+
+	/**
+	 * set changes the value of a cell that is stored by the table
+	 * 
+	 * @param i - row index
+	 * @param j - column index
+	 * @param value - the new value of cell [i][j]
+	 */
+	void set( int i, int j, double value );
+
+	/**
+	 * bestRoot finds the root r in first .. last with the smallest cost
+	 * get( i, r - 1 ) + get( r + 1, j ) + weight, which is the inner loop of OptimalBST.
+	 * ties keep the smallest r. a table can override this when its layout lets it read
+	 * both cells faster than get does
+	 * 
+	 * @param i - row index of the cell
+	 * @param j - column index of the cell
+	 * @param first - the first root to try
+	 * @param last - the last root to try
+	 * @param weight - the weight of the cell
+	 * @return - int which is the best root, or 0 when first > last
+	 */
+	default int bestRoot( int i, int j, int first, int last, double weight ) {
+		double best = Double.POSITIVE_INFINITY;
+		int bestRoot = 0;
+		for ( int r = first; r < last + 1; r++ ) {
+			double t = get( i, ( r - 1 ) ) + get( ( r + 1 ), j ) + weight;
+			if ( t < best ) {
+				best = t;
+				bestRoot = r;
+			}
+		}
+		return bestRoot;
+	}
+}
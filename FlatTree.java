@@ -0,0 +1,225 @@
+import java.io.PrintWriter;
+
+/**
+ * FlatTree is a binary search tree stored in three int arrays instead of Node objects. node k is
+ * the k-th smallest key ( counting from 0 ), so key[k] is its key and left[k] and right[k] are the
+ * numbers of its children, or NONE when a child is missing. a tree of n keys takes 12n bytes and no
+ * objects besides the arrays, so there is nothing for the garbage collector to follow.
+ *
+ * @category Dynamic Programming
+ */
+public class FlatTree {
+
+	// marks a missing child
+	public static final int NONE = -1;
+
+	// the key of every node
+	private int[] key;
+	// the left child of every node
+	private int[] left;
+	// the right child of every node
+	private int[] right;
+	// the root node
+	private int root;
+
+	/**
+	 * FlatTree constructor
+	 *
+	 * @param key - the keys in ascending order, the array is not copied
+	 * @param left - the left child of every node
+	 * @param right - the right child of every node
+	 * @param root - the root node, or NONE for an empty tree
+	 */
+	FlatTree( int[] key, int[] left, int[] right, int root ) {
+		this.key = key;
+		this.left = left;
+		this.right = right;
+		this.root = root;
+	}
+
+	/**
+	 * fromRoots builds the tree for keys 1 .. n - 1 straight from the roots table of OptimalBST. the
+	 * ranges that still have to be built are kept on an explicit stack, so any depth works
+	 *
+	 * @param roots - the roots table
+	 * @param keys - the keys in ascending order, the array is not copied
+	 * @param n - the number of keys plus one
+	 * @return - FlatTree with the shape given by the roots table
+	 */
+	static FlatTree fromRoots( RootTable roots, int[] keys, int n ) {
+		int[] left = new int[ n - 1 ];
+		int[] right = new int[ n - 1 ];
+		if ( n < 2 ) {
+			return new FlatTree( keys, left, right, NONE );
+		}
+		int treeRoot = roots.get( 1, n - 1 ) - 1;
+
+		// each entry is a range of keys, the node that its root hangs from, and which side it hangs on
+		int[] from = new int[ n ];
+		int[] to = new int[ n ];
+		int[] parent = new int[ n ];
+		boolean[] isLeft = new boolean[ n ];
+		int size = 0;
+		from[ size ] = 1;
+		to[ size ] = n - 1;
+		parent[ size++ ] = NONE;
+		while ( size > 0 ) {
+			size--;
+			int first = from[ size ];
+			int last = to[ size ];
+			int r = roots.get( first, last );
+			int node = r - 1;
+			left[ node ] = NONE;
+			right[ node ] = NONE;
+			if ( parent[ size ] != NONE ) {
+				if ( isLeft[ size ] ) {
+					left[ parent[ size ] ] = node;
+				} else {
+					right[ parent[ size ] ] = node;
+				}
+			}
+			if ( r + 1 <= last ) {
+				from[ size ] = r + 1;
+				to[ size ] = last;
+				parent[ size ] = node;
+				isLeft[ size++ ] = false;
+			}
+			if ( first <= r - 1 ) {
+				from[ size ] = first;
+				to[ size ] = r - 1;
+				parent[ size ] = node;
+				isLeft[ size++ ] = true;
+			}
+		}
+		return new FlatTree( keys, left, right, treeRoot );
+	}
+
+	/**
+	 * toNode makes a copy of the tree out of Node objects, without recursion
+	 *
+	 * @return - Node which is the root of the copy, or null for an empty tree
+	 */
+	public Node toNode() {
+		if ( root == NONE ) {
+			return null;
+		}
+		Node[] nodes = new Node[ key.length ];
+		int[] stack = new int[ key.length ];
+		int size = 0;
+		stack[ size++ ] = root;
+		nodes[ root ] = new Node( key[ root ] );
+		while ( size > 0 ) {
+			int node = stack[ --size ];
+			if ( left[ node ] != NONE ) {
+				nodes[ left[ node ] ] = new Node( key[ left[ node ] ] );
+				nodes[ node ].setLeftChild( nodes[ left[ node ] ] );
+				stack[ size++ ] = left[ node ];
+			}
+			if ( right[ node ] != NONE ) {
+				nodes[ right[ node ] ] = new Node( key[ right[ node ] ] );
+				nodes[ node ].setRightChild( nodes[ right[ node ] ] );
+				stack[ size++ ] = right[ node ];
+			}
+		}
+		return nodes[ root ];
+	}
+
+	/**
+	 * size returns the number of nodes in the tree
+	 *
+	 * @return - int which is the number of keys
+	 */
+	public int size() {
+		return root == NONE ? 0 : left.length;
+	}
+
+	/**
+	 * getRoot returns the root node
+	 *
+	 * @return - int which is the root node, or NONE for an empty tree
+	 */
+	public int getRoot() {
+		return root;
+	}
+
+	/**
+	 * getKey returns the key of a node
+	 *
+	 * @param node - the node
+	 * @return - int value which is the key of the node
+	 */
+	public int getKey( int node ) {
+		return key[ node ];
+	}
+
+	/**
+	 * getLeftChild returns the left child of a node
+	 *
+	 * @param node - the node
+	 * @return - int which is the left child, or NONE
+	 */
+	public int getLeftChild( int node ) {
+		return left[ node ];
+	}
+
+	/**
+	 * getRightChild returns the right child of a node
+	 *
+	 * @param node - the node
+	 * @return - int which is the right child, or NONE
+	 */
+	public int getRightChild( int node ) {
+		return right[ node ];
+	}
+
+	/**
+	 * preOrder prints the preorder traversal of the tree, in the same format as
+	 * OptimalBinarySearchTree.preOrder
+	 *
+	 * @param out - PrintWriter to print to
+	 */
+	public void preOrder( PrintWriter out ) {
+		int[] stack = new int[ key.length + 1 ];
+		int size = 0;
+		if ( root != NONE ) {
+			stack[ size++ ] = root;
+		}
+		while ( size > 0 ) {
+			int node = stack[ --size ];
+			printNode( out, node );
+			if ( right[ node ] != NONE ) {
+				stack[ size++ ] = right[ node ];
+			}
+			if ( left[ node ] != NONE ) {
+				stack[ size++ ] = left[ node ];
+			}
+		}
+	}
+
+	/**
+	 * inOrder prints the inorder traversal of the tree, in the same format as
+	 * OptimalBinarySearchTree.inOrder
+	 *
+	 * @param out - PrintWriter to print to
+	 */
+	public void inOrder( PrintWriter out ) {
+		int[] stack = new int[ key.length + 1 ];
+		int size = 0;
+		int node = root;
+		while ( node != NONE || size > 0 ) {
+			while ( node != NONE ) {
+				stack[ size++ ] = node;
+				node = left[ node ];
+			}
+			node = stack[ --size ];
+			printNode( out, node );
+			node = right[ node ];
+		}
+	}
+
+	private void printNode( PrintWriter out, int node ) {
+		OptimalBinarySearchTree.printNode( out, key[ node ],
+				left[ node ] != NONE, left[ node ] != NONE ? key[ left[ node ] ] : 0,
+				right[ node ] != NONE, right[ node ] != NONE ? key[ right[ node ] ] : 0 );
+	}
+}
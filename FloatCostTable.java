@@ -0,0 +1,49 @@
+/**
+ * FloatCostTable stores the used upper triangle of a CostTable row by row like PackedCostTable,
+ * but as floats, so it takes half the memory. every value that is set is rounded to the nearest
+ * float, which keeps about seven significant digits. the costs that are compared in OptimalBST are
+ * rounded the same way, so two roots whose costs only differ in the last digits can swap and the
+ * tree can be a little worse than the optimal one.
+ * 
+ * @category Dynamic Programming
+ */
+public class FloatCostTable implements CostTable {
+
+	// n, the table has n + 1 rows and n columns
+	private int n;
+	// rowStart[i] + j is the position of cell [i][j] in cells
+	private int[] rowStart;
+	// the stored cells, row by row
+	private float[] cells;
+
+	/**
+	 * FloatCostTable constructor makes a table with every cell set to 0
+	 * 
+	 * @param n - the number of keys plus one ( the same n that is passed to OptimalBinarySearchTree )
+	 */
+	public FloatCostTable( int n ) {
+		this.n = n;
+		rowStart = PackedCostTable.rowStarts( n );
+		cells = new float[ ( int ) PackedCostTable.packedLength( n ) ];
+	}
+
+	public int getSize() {
+		return n;
+	}
+
+	public long getBytes() {
+		return ( long ) cells.length * Float.BYTES + ( long ) rowStart.length * Integer.BYTES;
+	}
+
+	public boolean contains( int i, int j ) {
+		return i >= 1 && i <= n && j >= i - 1 && j < n;
+	}
+
+	public double get( int i, int j ) {
+		return cells[ rowStart[ i ] + j ];
+	}
+
+	public void set( int i, int j, double value ) {
+		cells[ rowStart[ i ] + j ] = ( float ) value;
+	}
+}
@@ -0,0 +1,269 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * FrequencyFile reads the keys and probabilities for a tree out of a binary file of counts. the file
+ * is memory mapped and read once, straight into the keys, p and q arrays that are given to the
+ * OptimalBinarySearchTree constructor, and the counts are divided by their total afterwards, so
+ * nothing else is made for the records. the file is, in big endian order:
+ *
+ *   int   m             the number of keys
+ *   long  misses        the number of searches for something smaller than the first key ( q[0] )
+ *   m records of
+ *     int   key         the keys in ascending order
+ *     long  hits        the number of searches for this key ( p[k] )
+ *     long  misses      the number of searches for something between this key and the next ( q[k] )
+ *
+ * readCounts keeps the counts as they are instead, for OptimalBinarySearchTreeSolver.solveCounts,
+ * which calculates with whole numbers and needs no division.
+ *
+ * @category Dynamic Programming
+ */
+public class FrequencyFile {
+
+	// bytes before the first record, and in every record
+	private static final int HEADER = 12;
+	private static final int RECORD = 20;
+	// the most records that are mapped at once, so a mapped part stays below 2 GB
+	private static final long RECORDS_PER_MAP = ( Integer.MAX_VALUE - HEADER ) / RECORD;
+
+	// the keys, and the probabilities in the form the constructor takes them, or null for readCounts
+	private int[] keys;
+	private double[] p;
+	private double[] q;
+	// the counts in the same places as p and q, or null for read
+	private long[] hits;
+	private long[] misses;
+	// the number of keys plus one
+	private int n;
+	// the total number of searches in the file
+	private long total;
+
+	private FrequencyFile( int[] keys, double[] p, double[] q, long[] hits, long[] misses, int n, long total ) {
+		this.keys = keys;
+		this.p = p;
+		this.q = q;
+		this.hits = hits;
+		this.misses = misses;
+		this.n = n;
+		this.total = total;
+	}
+
+	/**
+	 * read maps a frequency file and turns its counts into probabilities
+	 *
+	 * @param file - the file to read
+	 * @return - FrequencyFile with the keys and probabilities
+	 * @throws IOException - when the file can not be read, or is not a frequency file
+	 */
+	public static FrequencyFile read( Path file ) throws IOException {
+		return read( file, false );
+	}
+
+	/**
+	 * readCounts maps a frequency file and keeps its counts
+	 *
+	 * @param file - the file to read
+	 * @return - FrequencyFile with the keys and counts
+	 * @throws IOException - when the file can not be read, or is not a frequency file
+	 */
+	public static FrequencyFile readCounts( Path file ) throws IOException {
+		return read( file, true );
+	}
+
+	/**
+	 * read maps a frequency file and reads it in one pass
+	 *
+	 * @param file - the file to read
+	 * @param counts - true to keep the counts, false to turn them into probabilities
+	 * @return - FrequencyFile with the keys and the counts or probabilities
+	 * @throws IOException - when the file can not be read, or is not a frequency file
+	 */
+	private static FrequencyFile read( Path file, boolean counts ) throws IOException {
+		try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+			long length = channel.size();
+			if ( length < HEADER ) {
+				throw new IOException( file + " is too short to be a frequency file" );
+			}
+			ByteBuffer header = channel.map( FileChannel.MapMode.READ_ONLY, 0, HEADER );
+			int m = header.getInt();
+			if ( m < 0 || m == Integer.MAX_VALUE || length != HEADER + ( long ) m * RECORD ) {
+				throw new IOException( file + " does not hold " + m + " records" );
+			}
+
+			int n = m + 1;
+			int[] keys = new int[ m ];
+			double[] p = counts ? null : new double[ n ];
+			double[] q = counts ? null : new double[ n ];
+			long[] hitCounts = counts ? new long[ n ] : null;
+			long[] missCounts = counts ? new long[ n ] : null;
+			long total = checkCount( header.getLong(), file );
+			if ( counts ) {
+				missCounts[ 0 ] = total;
+			} else {
+				q[ 0 ] = total;
+			}
+
+			// the counts go into p and q as they are read, and are divided by the total at the end
+			for ( long first = 0; first < m; first += RECORDS_PER_MAP ) {
+				int count = ( int ) Math.min( RECORDS_PER_MAP, m - first );
+				MappedByteBuffer part = channel.map( FileChannel.MapMode.READ_ONLY,
+						HEADER + first * RECORD, ( long ) count * RECORD );
+				for ( int r = 0; r < count; r++ ) {
+					int k = ( int ) first + r;
+					keys[ k ] = part.getInt();
+					if ( k > 0 && keys[ k ] <= keys[ k - 1 ] ) {
+						throw new IOException( file + " does not have its keys in ascending order at record " + k );
+					}
+					long hits = checkCount( part.getLong(), file );
+					long misses = checkCount( part.getLong(), file );
+					if ( counts ) {
+						hitCounts[ k + 1 ] = hits;
+						missCounts[ k + 1 ] = misses;
+					} else {
+						p[ k + 1 ] = hits;
+						q[ k + 1 ] = misses;
+					}
+					total += hits + misses;
+					if ( total < 0 ) {
+						throw new IOException( file + " has more than " + Long.MAX_VALUE + " searches" );
+					}
+				}
+			}
+
+			if ( !counts && total > 0 ) {
+				for ( int i = 0; i < n; i++ ) {
+					p[ i ] /= total;
+					q[ i ] /= total;
+				}
+			}
+			return new FrequencyFile( keys, p, q, hitCounts, missCounts, n, total );
+		}
+	}
+
+	/**
+	 * write saves counts as a frequency file that read can load
+	 *
+	 * @param file - the file to write, it is replaced when it exists
+	 * @param keys - the keys in ascending order
+	 * @param hits - the number of searches for every key
+	 * @param misses - the number of searches that ended in every dummy key, one more than there are keys
+	 * @throws IOException - when the file can not be written
+	 */
+	public static void write( Path file, int[] keys, long[] hits, long[] misses ) throws IOException {
+		if ( hits.length != keys.length || misses.length != keys.length + 1 ) {
+			throw new IllegalArgumentException( "there must be a hit count for every key and a miss count for every dummy key" );
+		}
+		try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect( RECORD * 4096 );
+			buffer.putInt( keys.length );
+			buffer.putLong( misses[ 0 ] );
+			for ( int k = 0; k < keys.length; k++ ) {
+				if ( buffer.remaining() < RECORD ) {
+					drain( channel, buffer );
+				}
+				buffer.putInt( keys[ k ] );
+				buffer.putLong( hits[ k ] );
+				buffer.putLong( misses[ k + 1 ] );
+			}
+			drain( channel, buffer );
+		}
+	}
+
+	/**
+	 * build makes the tree for the keys and probabilities of the file
+	 *
+	 * @param options - SolverOptions for the build
+	 * @return - OptimalBinarySearchTree for the file
+	 * @throws IllegalStateException when the file was read with readCounts
+	 */
+	public OptimalBinarySearchTree build( SolverOptions options ) {
+		if ( p == null ) {
+			throw new IllegalStateException( "a file read with readCounts has no probabilities to build from" );
+		}
+		return new OptimalBinarySearchTree( keys, p, q, n, options );
+	}
+
+	private static void drain( FileChannel channel, ByteBuffer buffer ) throws IOException {
+		buffer.flip();
+		while ( buffer.hasRemaining() ) {
+			channel.write( buffer );
+		}
+		buffer.clear();
+	}
+
+	private static long checkCount( long count, Path file ) throws IOException {
+		if ( count < 0 ) {
+			throw new IOException( file + " has a negative count" );
+		}
+		return count;
+	}
+
+	/**
+	 * getKeys returns the keys, the array is not copied
+	 *
+	 * @return - array of ints with the keys in ascending order
+	 */
+	public int[] getKeys() {
+		return keys;
+	}
+
+	/**
+	 * getP returns the probabilities of the keys, p[0] is not used
+	 *
+	 * @return - array of doubles that is the probabilities that Pi is searched for ( real nodes ), or null for readCounts
+	 */
+	public double[] getP() {
+		return p;
+	}
+
+	/**
+	 * getQ returns the probabilities of the dummy keys
+	 *
+	 * @return - array of doubles that is the probabilities that Qi is searched for ( dummy nodes ), or null for readCounts
+	 */
+	public double[] getQ() {
+		return q;
+	}
+
+	/**
+	 * getHits returns the number of searches for every key, the array is not copied
+	 *
+	 * @return - array of longs in the places of p, or null when the file was read with read
+	 */
+	public long[] getHits() {
+		return hits;
+	}
+
+	/**
+	 * getMisses returns the number of searches that end in every dummy key, the array is not copied
+	 *
+	 * @return - array of longs in the places of q, or null when the file was read with read
+	 */
+	public long[] getMisses() {
+		return misses;
+	}
+
+	/**
+	 * getN returns the number of keys plus one, which is the n the constructor takes
+	 *
+	 * @return - int which is n
+	 */
+	public int getN() {
+		return n;
+	}
+
+	/**
+	 * getTotal returns the number of searches the counts add up to
+	 *
+	 * @return - long which is the total count
+	 */
+	public long getTotal() {
+		return total;
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * LongLookupTree is a LookupTree for long keys, such as 64 bit ids. the optimal tree only depends
+ * on the order of the keys, so it is built for their positions and the keys are put in afterwards.
+ * the keys sit in a long array in breadth first order next to an int array with the children and
+ * position of every node, so nothing is boxed and a search reads the same way as in LookupTree.
+ *
+ * @category Dynamic Programming
+ */
+public class LongLookupTree {
+
+	// the ints in the links of a node
+	private static final int LEFT = 0;
+	private static final int RIGHT = 1;
+	private static final int RANK = 2;
+	private static final int LINKS = 3;
+
+	// the keys of the nodes in breadth first order
+	private final long[] keys;
+	// the left child, right child and position of the key of every node, in the same order
+	private final int[] links;
+	// the number of nodes
+	private final int size;
+
+	/**
+	 * LongLookupTree constructor copies the shape of a LookupTree and takes the keys by position
+	 *
+	 * @param shape - the tree whose shape is copied, its keys are not used
+	 * @param keys - the keys in ascending order, keys[k] is the key at position k
+	 * @throws IllegalArgumentException when there is not a key for every node or the keys are not ascending
+	 */
+	public LongLookupTree( LookupTree shape, long[] keys ) {
+		size = shape.size();
+		if ( keys.length != size ) {
+			throw new IllegalArgumentException( "the tree has " + size + " nodes but there are " + keys.length + " keys" );
+		}
+		for ( int k = 1; k < size; k++ ) {
+			if ( keys[ k ] <= keys[ k - 1 ] ) {
+				throw new IllegalArgumentException( "the keys are not in ascending order at keys[" + k + "]" );
+			}
+		}
+		this.keys = new long[ size ];
+		links = new int[ size * LINKS ];
+		int[] records = shape.records();
+		for ( int b = 0; b < size; b++ ) {
+			int record = b * LookupTree.RECORD;
+			int rank = records[ record + LookupTree.RANK ];
+			this.keys[ b ] = keys[ rank ];
+			links[ b * LINKS + LEFT ] = records[ record + LookupTree.LEFT ];
+			links[ b * LINKS + RIGHT ] = records[ record + LookupTree.RIGHT ];
+			links[ b * LINKS + RANK ] = rank;
+		}
+	}
+
+	/**
+	 * build makes the optimal tree for long keys
+	 *
+	 * @param keys - the keys in ascending order
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes ), p[k + 1] is for keys[k]
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param options - SolverOptions for the build
+	 * @return - LongLookupTree for the keys
+	 */
+	public static LongLookupTree build( long[] keys, double[] p, double[] q, SolverOptions options ) {
+		return new LongLookupTree( LookupTree.forRanks( keys.length, p, q, options ), keys );
+	}
+
+	/**
+	 * search looks for a key by walking down the tree, see LookupTree.search
+	 *
+	 * @param key - the key to look for
+	 * @return - the position of the key when it is found, otherwise -( gap ) - 1
+	 */
+	public int search( long key ) {
+		if ( size == 0 ) {
+			return -1;
+		}
+		int node = 0;
+		while ( true ) {
+			long nodeKey = keys[ node ];
+			if ( key == nodeKey ) {
+				return links[ node * LINKS + RANK ];
+			}
+			int next = links[ node * LINKS + ( key > nodeKey ? RIGHT : LEFT ) ];
+			if ( next < 0 ) {
+				return next;
+			}
+			node = next;
+		}
+	}
+
+	/**
+	 * contains checks if a key is in the tree
+	 *
+	 * @param key - the key to look for
+	 * @return - true when the key is found
+	 */
+	public boolean contains( long key ) {
+		return search( key ) >= 0;
+	}
+
+	/**
+	 * size returns the number of keys in the tree
+	 *
+	 * @return - int which is the number of keys
+	 */
+	public int size() {
+		return size;
+	}
+}
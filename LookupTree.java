@@ -0,0 +1,186 @@
+/**
+ * LookupTree is a read only copy of a tree that is laid out for searching. the nodes are numbered
+ * breadth first, so the top levels of the tree, which every search goes through, sit next to each
+ * other in memory. every node is a record of four ints in a single array, its key, its left and right
+ * child and the position of its key, so a node is never split over two cache lines and one cache
+ * line holds four nodes. a missing child holds the dummy key it leads to instead, so a search never
+ * looks at a node that is not there. the tree keeps the shape of the optimal tree.
+ *
+ * @category Dynamic Programming
+ */
+public class LookupTree {
+
+	// the ints in the record of a node
+	static final int KEY = 0;
+	static final int LEFT = 1;
+	static final int RIGHT = 2;
+	static final int RANK = 3;
+	static final int RECORD = 4;
+
+	// the records of the nodes in breadth first order
+	private final int[] nodes;
+	// the number of nodes
+	private final int size;
+
+	/**
+	 * LookupTree constructor copies a FlatTree into breadth first order
+	 *
+	 * @param tree - the tree to copy
+	 */
+	public LookupTree( FlatTree tree ) {
+		size = tree.size();
+		nodes = new int[ size * RECORD ];
+		if ( size == 0 ) {
+			return;
+		}
+
+		// queue[b] is the FlatTree node ( which is also the position of its key ) at breadth first index b
+		int[] queue = new int[ size ];
+		int tail = 0;
+		queue[ tail++ ] = tree.getRoot();
+		for ( int head = 0; head < size; head++ ) {
+			int node = queue[ head ];
+			int record = head * RECORD;
+			nodes[ record + KEY ] = tree.getKey( node );
+			nodes[ record + RANK ] = node;
+			// the dummy key left of key k is gap k, the one right of it is gap k + 1
+			if ( tree.getLeftChild( node ) != FlatTree.NONE ) {
+				nodes[ record + LEFT ] = tail;
+				queue[ tail++ ] = tree.getLeftChild( node );
+			} else {
+				nodes[ record + LEFT ] = -node - 1;
+			}
+			if ( tree.getRightChild( node ) != FlatTree.NONE ) {
+				nodes[ record + RIGHT ] = tail;
+				queue[ tail++ ] = tree.getRightChild( node );
+			} else {
+				nodes[ record + RIGHT ] = -( node + 1 ) - 1;
+			}
+		}
+	}
+
+	/**
+	 * search looks for a key by walking down the tree. the result is read the same way as the
+	 * result of Arrays.binarySearch
+	 *
+	 * @param key - the key to look for
+	 * @return - the position of the key ( 0 for the smallest key ) when it is found, otherwise
+	 * -( gap ) - 1, where gap is the dummy key the search ended in ( 0 when key is smaller than every key )
+	 */
+	public int search( int key ) {
+		if ( size == 0 ) {
+			return -1;
+		}
+		int record = 0;
+		while ( true ) {
+			int nodeKey = nodes[ record + KEY ];
+			if ( key == nodeKey ) {
+				return nodes[ record + RANK ];
+			}
+			// LEFT + 1 is RIGHT, so the side is picked without a branch
+			int next = nodes[ record + LEFT + ( key > nodeKey ? 1 : 0 ) ];
+			if ( next < 0 ) {
+				return next;
+			}
+			record = next * RECORD;
+		}
+	}
+
+	/**
+	 * expectedCost works out the expected cost of a search in this tree, like expectedCosts[1][n-1],
+	 * for probabilities that can be different from the ones the tree was built for
+	 *
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @return - double which is the sum of ( depth + 1 ) * probability over the keys and dummy keys
+	 */
+	public double expectedCost( double[] p, double[] q ) {
+		if ( size == 0 ) {
+			return q[ 0 ];
+		}
+		// children always come after their parent in breadth first order
+		int[] depth = new int[ size ];
+		double cost = 0;
+		for ( int b = 0; b < size; b++ ) {
+			int record = b * RECORD;
+			cost += p[ nodes[ record + RANK ] + 1 ] * ( depth[ b ] + 1 );
+			for ( int side = LEFT; side <= RIGHT; side++ ) {
+				int child = nodes[ record + side ];
+				if ( child >= 0 ) {
+					depth[ child ] = depth[ b ] + 1;
+				} else {
+					cost += q[ -child - 1 ] * ( depth[ b ] + 2 );
+				}
+			}
+		}
+		return cost;
+	}
+
+	/**
+	 * height returns the number of nodes on the longest path from the root down, which is the most
+	 * comparisons a search can take
+	 *
+	 * @return - int which is the height, 0 for an empty tree
+	 */
+	public int height() {
+		int[] depth = new int[ size ];
+		int height = 0;
+		for ( int b = 0; b < size; b++ ) {
+			height = Math.max( height, depth[ b ] + 1 );
+			for ( int side = LEFT; side <= RIGHT; side++ ) {
+				int child = nodes[ b * RECORD + side ];
+				if ( child >= 0 ) {
+					depth[ child ] = depth[ b ] + 1;
+				}
+			}
+		}
+		return height;
+	}
+
+	/**
+	 * contains checks if a key is in the tree
+	 *
+	 * @param key - the key to look for
+	 * @return - true when the key is found
+	 */
+	public boolean contains( int key ) {
+		return search( key ) >= 0;
+	}
+
+	/**
+	 * forRanks builds the optimal tree for keys that are only known by their order, the int key of
+	 * every node is its position. LongLookupTree and StringLookupTree copy the shape of this tree
+	 *
+	 * @param size - the number of keys
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param options - SolverOptions for the build
+	 * @return - LookupTree with the positions 0 .. size - 1 as its keys
+	 */
+	static LookupTree forRanks( int size, double[] p, double[] q, SolverOptions options ) {
+		int[] ranks = new int[ size ];
+		for ( int k = 0; k < size; k++ ) {
+			ranks[ k ] = k;
+		}
+		return new OptimalBinarySearchTree( ranks, p, q, size + 1, options ).getLookupTree();
+	}
+
+	/**
+	 * records returns the records of the nodes in breadth first order, four ints per node ( key, left
+	 * child, right child, position of the key ), the array is not copied and must not be changed
+	 *
+	 * @return - array of ints with the records
+	 */
+	int[] records() {
+		return nodes;
+	}
+
+	/**
+	 * size returns the number of keys in the tree
+	 *
+	 * @return - int which is the number of keys
+	 */
+	public int size() {
+		return size;
+	}
+}
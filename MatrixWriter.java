@@ -0,0 +1,282 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * MatrixWriter writes the c, w and r tables to a channel much faster than printf. every number is
+ * turned into digits by hand, straight into one large buffer that is reused, and the buffer is
+ * handed to the channel whenever it is full. the text looks exactly like printf( "%10.3f" ) and
+ * printf( "%5d" ), always with a decimal point whatever the locale is. the tables can be written in several formats:
+ *
+ *   FULL     every cell of the n + 1 rows and n columns, like the driver always printed them
+ *   UPPER    only the cells that are used, row i holds columns i - 1 .. n - 1 for i = 1 .. n
+ *   CSV      a line "i,j,value" for every used cell, with three decimals for costs and weights
+ *   BINARY   the int n, then every used cell row by row as a big endian double or int
+ *   NONE     nothing
+ *
+ * @category Dynamic Programming
+ */
+public class MatrixWriter {
+
+	/**
+	 * Format selects how a table is written, see MatrixWriter
+	 */
+	public enum Format {
+		FULL,
+		UPPER,
+		CSV,
+		BINARY,
+		NONE
+	}
+
+	// the widths of a cost and of a root in the text formats
+	private static final int COST_WIDTH = 10;
+	private static final int ROOT_WIDTH = 5;
+	// costs below this are turned into digits by hand, their products with 1000 are exact enough
+	private static final double FAST_LIMIT = 1e9;
+
+	// where the bytes go
+	private WritableByteChannel channel;
+	// the bytes that were not handed to the channel yet
+	private byte[] bytes;
+	private ByteBuffer buffer;
+	// digits of a number, written backwards
+	private byte[] digits;
+
+	/**
+	 * MatrixWriter constructor with a buffer of 1 MB
+	 *
+	 * @param channel - the channel to write to, it is not closed by the writer
+	 */
+	public MatrixWriter( WritableByteChannel channel ) {
+		this( channel, 1 << 20 );
+	}
+
+	/**
+	 * MatrixWriter constructor
+	 *
+	 * @param channel - the channel to write to, it is not closed by the writer
+	 * @param bufferSize - the bytes that are collected before they are handed to the channel, at least 64
+	 */
+	public MatrixWriter( WritableByteChannel channel, int bufferSize ) {
+		this.channel = channel;
+		bytes = new byte[ Math.max( 64, bufferSize ) ];
+		buffer = ByteBuffer.wrap( bytes );
+		digits = new byte[ 20 ];
+	}
+
+	/**
+	 * print writes text
+	 *
+	 * @param text - the text to write
+	 * @throws IOException - when the channel can not be written
+	 */
+	public void print( String text ) throws IOException {
+		byte[] encoded = text.getBytes( StandardCharsets.UTF_8 );
+		for ( int b = 0; b < encoded.length; b++ ) {
+			if ( !buffer.hasRemaining() ) {
+				flush();
+			}
+			buffer.put( encoded[ b ] );
+		}
+	}
+
+	/**
+	 * writeCosts writes a table of expected costs or weights
+	 *
+	 * @param table - the table to write
+	 * @param format - how to write it
+	 * @throws IOException - when the channel can not be written
+	 */
+	public void writeCosts( CostTable table, Format format ) throws IOException {
+		writeTable( table.getSize(), table, null, format );
+	}
+
+	/**
+	 * writeRoots writes a table of roots
+	 *
+	 * @param table - the table to write
+	 * @param format - how to write it
+	 * @throws IOException - when the channel can not be written
+	 */
+	public void writeRoots( RootTable table, Format format ) throws IOException {
+		writeTable( table.getSize(), null, table, format );
+	}
+
+	/**
+	 * flush hands everything that was written so far to the channel
+	 *
+	 * @throws IOException - when the channel can not be written
+	 */
+	public void flush() throws IOException {
+		buffer.flip();
+		while ( buffer.hasRemaining() ) {
+			channel.write( buffer );
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * writeTable writes one of the two tables, the other one is null
+	 *
+	 * @param n - the size of the table
+	 * @param costs - the table of costs, or null
+	 * @param roots - the table of roots, or null
+	 * @param format - how to write the table
+	 * @throws IOException - when the channel can not be written
+	 */
+	private void writeTable( int n, CostTable costs, RootTable roots, Format format ) throws IOException {
+		switch ( format ) {
+			case FULL:
+				for ( int i = 0; i < n + 1; i++ ) {
+					for ( int j = 0; j < n; j++ ) {
+						writeCell( costs, roots, i, j, true );
+					}
+					putByte( '\n' );
+				}
+				break;
+			case UPPER:
+				for ( int i = 1; i < n + 1; i++ ) {
+					for ( int j = i - 1; j < n; j++ ) {
+						writeCell( costs, roots, i, j, true );
+					}
+					putByte( '\n' );
+				}
+				break;
+			case CSV:
+				print( "i,j,value\n" );
+				for ( int i = 1; i < n + 1; i++ ) {
+					for ( int j = i - 1; j < n; j++ ) {
+						putLong( i, 0 );
+						putByte( ',' );
+						putLong( j, 0 );
+						putByte( ',' );
+						writeCell( costs, roots, i, j, false );
+						putByte( '\n' );
+					}
+				}
+				break;
+			case BINARY:
+				room( 4 );
+				buffer.putInt( n );
+				for ( int i = 1; i < n + 1; i++ ) {
+					for ( int j = i - 1; j < n; j++ ) {
+						if ( costs != null ) {
+							room( 8 );
+							buffer.putDouble( costs.get( i, j ) );
+						} else {
+							room( 4 );
+							buffer.putInt( roots.get( i, j ) );
+						}
+					}
+				}
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * writeCell writes a cell as text, a cell that is not stored is 0
+	 *
+	 * @param costs - the table of costs, or null
+	 * @param roots - the table of roots, or null
+	 * @param i - row index
+	 * @param j - column index
+	 * @param padded - true to pad the cell to the width of the text formats
+	 * @throws IOException - when the channel can not be written
+	 */
+	private void writeCell( CostTable costs, RootTable roots, int i, int j, boolean padded ) throws IOException {
+		if ( costs != null ) {
+			putFixed( costs.contains( i, j ) ? costs.get( i, j ) : 0, padded ? COST_WIDTH : 0 );
+		} else {
+			putLong( roots.contains( i, j ) ? roots.get( i, j ) : 0, padded ? ROOT_WIDTH : 0 );
+		}
+	}
+
+	/**
+	 * putFixed writes a number with three decimals, like printf( "%10.3f" ) does. the number is
+	 * multiplied by 1000 and rounded, which is exact unless the product is close to half way between
+	 * two integers. printf rounds the shortest decimal form of the number half up, so those numbers,
+	 * and numbers that are negative, very large or not a number, are left to String.format
+	 *
+	 * @param value - the number
+	 * @param width - the smallest number of characters, spaces are added in front
+	 * @throws IOException - when the channel can not be written
+	 */
+	private void putFixed( double value, int width ) throws IOException {
+		if ( value >= 0 && value < FAST_LIMIT ) {
+			double scaled = value * 1000;
+			long units = ( long ) scaled;
+			double fraction = scaled - units;
+			if ( Math.abs( fraction - 0.5 ) > 1e-3 ) {
+				if ( fraction > 0.5 ) {
+					units++;
+				}
+				int count = 0;
+				long rest = units;
+				do {
+					digits[ count++ ] = ( byte ) ( '0' + rest % 10 );
+					rest /= 10;
+					if ( count == 3 ) {
+						digits[ count++ ] = '.';
+					}
+				} while ( rest > 0 || count < 5 );
+				room( Math.max( width, count ) );
+				for ( int pad = count; pad < width; pad++ ) {
+					buffer.put( ( byte ) ' ' );
+				}
+				while ( count > 0 ) {
+					buffer.put( digits[ --count ] );
+				}
+				return;
+			}
+		}
+		print( String.format( Locale.ROOT, width > 0 ? "%" + width + ".3f" : "%.3f", value ) );
+	}
+
+	/**
+	 * putLong writes a whole number, like printf( "%5d" ) does
+	 *
+	 * @param value - the number
+	 * @param width - the smallest number of characters, spaces are added in front
+	 * @throws IOException - when the channel can not be written
+	 */
+	private void putLong( long value, int width ) throws IOException {
+		if ( value < 0 ) {
+			print( String.format( Locale.ROOT, width > 0 ? "%" + width + "d" : "%d", value ) );
+			return;
+		}
+		int count = 0;
+		do {
+			digits[ count++ ] = ( byte ) ( '0' + value % 10 );
+			value /= 10;
+		} while ( value > 0 );
+		room( Math.max( width, count ) );
+		for ( int pad = count; pad < width; pad++ ) {
+			buffer.put( ( byte ) ' ' );
+		}
+		while ( count > 0 ) {
+			buffer.put( digits[ --count ] );
+		}
+	}
+
+	private void putByte( char character ) throws IOException {
+		room( 1 );
+		buffer.put( ( byte ) character );
+	}
+
+	/**
+	 * room makes sure the buffer has space for a number of bytes
+	 *
+	 * @param count - the number of bytes, at most the size of the buffer
+	 * @throws IOException - when the channel can not be written
+	 */
+	private void room( int count ) throws IOException {
+		if ( buffer.remaining() < count ) {
+			flush();
+		}
+	}
+}
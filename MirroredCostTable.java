@@ -0,0 +1,77 @@
+/**
+ * MirroredCostTable stores the used upper triangle of a CostTable twice, once row by row and once
+ * column by column. the inner loop of OptimalBST reads cell [i][r-1] along row i and cell [r+1][j]
+ * down column j, so with both copies the two reads walk through memory one after the other instead
+ * of jumping to a different row for every r. this takes twice the memory of a PackedCostTable.
+ * 
+ * @category Dynamic Programming
+ */
+public class MirroredCostTable implements CostTable {
+
+	// n, the table has n + 1 rows and n columns
+	private int n;
+	// rowStart[i] + j is the position of cell [i][j] in rows
+	private int[] rowStart;
+	// columnStart[j] + i is the position of cell [i][j] in columns
+	private int[] columnStart;
+	// the stored cells, row by row
+	private double[] rows;
+	// the stored cells, column by column
+	private double[] columns;
+
+	/**
+	 * MirroredCostTable constructor makes a table with every cell set to 0
+	 * 
+	 * @param n - the number of keys plus one ( the same n that is passed to OptimalBinarySearchTree )
+	 */
+	public MirroredCostTable( int n ) {
+		this.n = n;
+		int length = ( int ) PackedCostTable.packedLength( n );
+		rowStart = PackedCostTable.rowStarts( n );
+		rows = new double[ length ];
+		// column j holds rows 1 .. j + 1, so the columns before it hold j( j + 1 )/2 cells
+		columnStart = new int[ n ];
+		for ( int j = 0; j < n; j++ ) {
+			columnStart[ j ] = ( int ) ( ( long ) j * ( j + 1 ) / 2 - 1 );
+		}
+		columns = new double[ length ];
+	}
+
+	public int getSize() {
+		return n;
+	}
+
+	public long getBytes() {
+		return ( long ) ( rows.length + columns.length ) * Double.BYTES + ( long ) ( rowStart.length + columnStart.length ) * Integer.BYTES;
+	}
+
+	public boolean contains( int i, int j ) {
+		return i >= 1 && i <= n && j >= i - 1 && j < n;
+	}
+
+	public double get( int i, int j ) {
+		return rows[ rowStart[ i ] + j ];
+	}
+
+	public void set( int i, int j, double value ) {
+		rows[ rowStart[ i ] + j ] = value;
+		columns[ columnStart[ j ] + i ] = value;
+	}
+
+	@Override
+	public int bestRoot( int i, int j, int first, int last, double weight ) {
+		// cell [i][r-1] is rows[ left + r ] and cell [r+1][j] is columns[ right + r ]
+		int left = rowStart[ i ] - 1;
+		int right = columnStart[ j ] + 1;
+		double best = Double.POSITIVE_INFINITY;
+		int bestRoot = 0;
+		for ( int r = first; r < last + 1; r++ ) {
+			double t = rows[ left + r ] + columns[ right + r ] + weight;
+			if ( t < best ) {
+				best = t;
+				bestRoot = r;
+			}
+		}
+		return bestRoot;
+	}
+}
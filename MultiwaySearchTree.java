@@ -0,0 +1,334 @@
+/**
+ * MultiwaySearchTree is an optimal search tree whose nodes hold up to k keys, like the nodes of a
+ * B-tree. a search reads a whole node at once and then moves to one of its k + 1 children, so a
+ * search costs one node visit per level instead of one per key, and a node visit is what costs a
+ * cache miss. the cost of the tree is the expected number of nodes a search visits, where a search for
+ * a key stops in the node that holds it and a search for a dummy key stops in the node with the
+ * missing child it leads to. with the default of 15 keys a node is 32 ints, its count, 15 keys and 16
+ * children, which is two 64 byte cache lines.
+ *
+ * the tree is calculated with the OptimalBST recurrence for k keys per node ( Vaishnavi, Kriegel and
+ * Wood, 1980 ). with W(i,j) the weight of keys i .. j and their dummy keys, the cost of keys i .. j is
+ *
+ *   C(i,j) = W(i,j) + min over t = 1 .. k of G(t,i,j), where C(i,i-1) = 0
+ *   G(t,i,j) = min over r of C(i,r-1) + G(t-1,r+1,j), where G(0,i,j) = C(i,j)
+ *
+ * G(t,i,j) is the cheapest way to split keys i .. j into t + 1 subtrees with t keys of the root, r
+ * being the first of them. this takes O(k n^3) time. G is only read for the same j, so it is kept for
+ * one j at a time and the memory is the n^2 / 2 costs plus ( k + 1 ) n. the keys of every node are
+ * found again afterwards by working out G once more for the j of the node.
+ *
+ * @category Dynamic Programming
+ */
+public class MultiwaySearchTree {
+
+	// the keys of a node when the order is not given, so that a node fills two cache lines
+	public static final int DEFAULT_ORDER = 15;
+
+	// the ints in the record of a node, its number of keys, then k keys, then k + 1 children
+	private static final int COUNT = 0;
+	private static final int KEYS = 1;
+
+	// the most keys in a node
+	private final int order;
+	// the ints in the record of a node
+	private final int stride;
+	// the records of the nodes in breadth first order. a missing child holds -( gap ) - 1
+	private final int[] nodes;
+	// the position of every key of every node, order ints per node
+	private final int[] ranks;
+	// the number of nodes and of keys
+	private final int nodeCount;
+	private final int size;
+	// the expected number of nodes a search visits
+	private final double cost;
+
+	private MultiwaySearchTree( int order, int[] nodes, int[] ranks, int nodeCount, int size, double cost ) {
+		this.order = order;
+		this.stride = 2 * order + 2;
+		this.nodes = nodes;
+		this.ranks = ranks;
+		this.nodeCount = nodeCount;
+		this.size = size;
+		this.cost = cost;
+	}
+
+	/**
+	 * build calculates the optimal tree with DEFAULT_ORDER keys per node
+	 *
+	 * @param keys - an array of keys in ascending order
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param n - the number of keys plus one
+	 * @return - MultiwaySearchTree with the fewest expected node visits
+	 */
+	public static MultiwaySearchTree build( int[] keys, double[] p, double[] q, int n ) {
+		return build( keys, p, q, n, DEFAULT_ORDER );
+	}
+
+	/**
+	 * build calculates the optimal tree with a given number of keys per node
+	 *
+	 * @param keys - an array of keys in ascending order
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param n - the number of keys plus one
+	 * @param order - the most keys in a node, 1 gives an optimal binary tree
+	 * @return - MultiwaySearchTree with the fewest expected node visits
+	 * @throws IllegalArgumentException when the input does not describe a tree or order is below 1
+	 */
+	public static MultiwaySearchTree build( int[] keys, double[] p, double[] q, int n, int order ) {
+		OptimalBinarySearchTree.validate( keys, p, q, n );
+		if ( order < 1 ) {
+			throw new IllegalArgumentException( "a node must hold at least 1 key" );
+		}
+		return new Builder( p, q, n, order ).build( keys );
+	}
+
+	/**
+	 * search looks for a key by walking down the tree, reading the keys of a node from the left until
+	 * one is not smaller than the key. the result is read the same way as the result of LookupTree.search
+	 *
+	 * @param key - the key to look for
+	 * @return - the position of the key ( 0 for the smallest key ) when it is found, otherwise
+	 * -( gap ) - 1, where gap is the dummy key the search ended in
+	 */
+	public int search( int key ) {
+		if ( nodeCount == 0 ) {
+			return -1;
+		}
+		int node = 0;
+		while ( true ) {
+			int record = node * stride;
+			int count = nodes[ record + COUNT ];
+			int slot = 0;
+			while ( slot < count && key > nodes[ record + KEYS + slot ] ) {
+				slot++;
+			}
+			if ( slot < count && key == nodes[ record + KEYS + slot ] ) {
+				return ranks[ node * order + slot ];
+			}
+			int next = nodes[ record + KEYS + order + slot ];
+			if ( next < 0 ) {
+				return next;
+			}
+			node = next;
+		}
+	}
+
+	/**
+	 * contains checks if a key is in the tree
+	 *
+	 * @param key - the key to look for
+	 * @return - true when the key is found
+	 */
+	public boolean contains( int key ) {
+		return search( key ) >= 0;
+	}
+
+	/**
+	 * height returns the number of nodes on the longest path from the root down, which is the most
+	 * nodes a search can visit
+	 *
+	 * @return - int which is the height, 0 for an empty tree
+	 */
+	public int height() {
+		int[] depth = new int[ nodeCount ];
+		int height = 0;
+		for ( int b = 0; b < nodeCount; b++ ) {
+			height = Math.max( height, depth[ b ] + 1 );
+			int record = b * stride;
+			for ( int slot = 0; slot < nodes[ record + COUNT ] + 1; slot++ ) {
+				int child = nodes[ record + KEYS + order + slot ];
+				if ( child >= 0 ) {
+					depth[ child ] = depth[ b ] + 1;
+				}
+			}
+		}
+		return height;
+	}
+
+	/**
+	 * getCost returns the expected number of nodes a search visits, for the probabilities the tree was
+	 * built for
+	 *
+	 * @return - double which is the expected cost
+	 */
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * getOrder returns the most keys a node holds
+	 *
+	 * @return - int which is k
+	 */
+	public int getOrder() {
+		return order;
+	}
+
+	/**
+	 * nodeCount returns the number of nodes in the tree
+	 *
+	 * @return - int which is the number of nodes
+	 */
+	public int nodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * size returns the number of keys in the tree
+	 *
+	 * @return - int which is the number of keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Builder holds the tables of one calculation
+	 */
+	private static class Builder {
+
+		private final int n;
+		private final int order;
+		// C(i,j) of the recurrence, C(i,i-1) is 0
+		private final PackedCostTable costs;
+		private final PrefixSumWeights weights;
+		// split[t][i] is G(t,i,j) for the j that was worked out last, split[0][j+1] is the empty range
+		private final double[][] split;
+
+		Builder( double[] p, double[] q, int n, int order ) {
+			this.n = n;
+			this.order = order;
+			costs = new PackedCostTable( n );
+			weights = new PrefixSumWeights( p, q, n );
+			split = new double[ order + 1 ][ n + 1 ];
+		}
+
+		/**
+		 * build fills in the costs and then makes the nodes breadth first
+		 *
+		 * @param keys - the keys in ascending order
+		 * @return - MultiwaySearchTree with the fewest expected node visits
+		 */
+		MultiwaySearchTree build( int[] keys ) {
+			for ( int j = 1; j < n; j++ ) {
+				column( j, 1, true );
+			}
+			int size = n - 1;
+			int stride = 2 * order + 2;
+			double cost = size > 0 ? costs.get( 1, n - 1 ) : 0;
+
+			// a node holds at least one key, so there are at most size nodes
+			int[] nodes = new int[ Math.max( size, 1 ) * stride ];
+			int[] ranks = new int[ Math.max( size, 1 ) * order ];
+			int[] from = new int[ Math.max( size, 1 ) ];
+			int[] to = new int[ Math.max( size, 1 ) ];
+			int[] separators = new int[ order ];
+			int nodeCount = 0;
+			if ( size > 0 ) {
+				from[ 0 ] = 1;
+				to[ 0 ] = n - 1;
+				nodeCount = 1;
+			}
+			for ( int node = 0; node < nodeCount; node++ ) {
+				int i = from[ node ];
+				int j = to[ node ];
+				int count = keysOfNode( i, j, separators );
+				int record = node * stride;
+				nodes[ record + COUNT ] = count;
+				int first = i;
+				for ( int slot = 0; slot < count + 1; slot++ ) {
+					int last = slot < count ? separators[ slot ] - 1 : j;
+					int child;
+					if ( first > last ) {
+						// keys first - 1 and first are next to each other, so dummy key first - 1 is between them
+						child = -( first - 1 ) - 1;
+					} else {
+						from[ nodeCount ] = first;
+						to[ nodeCount ] = last;
+						child = nodeCount++;
+					}
+					nodes[ record + KEYS + order + slot ] = child;
+					if ( slot < count ) {
+						nodes[ record + KEYS + slot ] = keys[ separators[ slot ] - 1 ];
+						ranks[ node * order + slot ] = separators[ slot ] - 1;
+						first = separators[ slot ] + 1;
+					}
+				}
+			}
+			return new MultiwaySearchTree( order, nodes, ranks, nodeCount, size, cost );
+		}
+
+		/**
+		 * column works out G(t,i,j) for one j and i = j down to from. when fill is set C(i,j) is
+		 * calculated and stored as well, otherwise the stored C(i,j) is used, which gives the same
+		 * numbers again since they are added in the same order
+		 *
+		 * @param j - the last key of the ranges
+		 * @param from - the smallest first key of the ranges
+		 * @param fill - true to store C(i,j)
+		 */
+		private void column( int j, int from, boolean fill ) {
+			split[ 0 ][ j + 1 ] = 0;
+			for ( int i = j; i >= from; i-- ) {
+				double best = Double.POSITIVE_INFINITY;
+				int most = Math.min( order, j - i + 1 );
+				for ( int t = 1; t < most + 1; t++ ) {
+					double g = Double.POSITIVE_INFINITY;
+					// the other t - 1 keys of the root need t - 1 keys after r
+					for ( int r = i; r < j - t + 2; r++ ) {
+						double value = costs.get( i, r - 1 ) + split[ t - 1 ][ r + 1 ];
+						if ( value < g ) {
+							g = value;
+						}
+					}
+					split[ t ][ i ] = g;
+					if ( g < best ) {
+						best = g;
+					}
+				}
+				if ( fill ) {
+					costs.set( i, j, weights.get( i, j ) + best );
+				}
+				split[ 0 ][ i ] = costs.get( i, j );
+			}
+		}
+
+		/**
+		 * keysOfNode finds the keys of the root of keys i .. j, the ones that gave C(i,j)
+		 *
+		 * @param i - the first key of the range
+		 * @param j - the last key of the range
+		 * @param separators - array that receives the positions ( 1 .. n - 1 ) of the keys in ascending order
+		 * @return - int which is the number of keys of the node
+		 */
+		private int keysOfNode( int i, int j, int[] separators ) {
+			column( j, i, false );
+			int most = Math.min( order, j - i + 1 );
+			int count = 1;
+			for ( int t = 2; t < most + 1; t++ ) {
+				if ( split[ t ][ i ] < split[ count ][ i ] ) {
+					count = t;
+				}
+			}
+			// the first key is the r that gave G(t,i,j), and the rest split keys r + 1 .. j into t subtrees
+			int first = i;
+			for ( int t = count; t > 0; t-- ) {
+				double g = Double.POSITIVE_INFINITY;
+				int separator = first;
+				for ( int r = first; r < j - t + 2; r++ ) {
+					double value = costs.get( first, r - 1 ) + split[ t - 1 ][ r + 1 ];
+					if ( value < g ) {
+						g = value;
+						separator = r;
+					}
+				}
+				separators[ count - t ] = separator;
+				first = separator + 1;
+			}
+			return count;
+		}
+	}
+}
@@ -0,0 +1,135 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * OffHeapCells holds the packed upper triangle of a table outside of the Java heap, in direct
+ * buffers or in buffers mapped from a temporary file. a single buffer holds at most 1 GB, so the
+ * triangle is split into parts of 1 GB and cell [i][j] is found by its long position rowStart[i] + j.
+ * the garbage collector only sees the buffer objects, and a mapped table can be paged out by the
+ * operating system when it does not fit in memory.
+ *
+ * @category Dynamic Programming
+ */
+class OffHeapCells {
+
+	// every part holds 2^PART_BITS bytes
+	private static final int PART_BITS = 30;
+
+	// n, the table has n + 1 rows and n columns
+	private int n;
+	// rowStart[i] + j is the position of cell [i][j]
+	private long[] rowStart;
+	// log2 of the number of cells in a part, and that number minus one
+	private int shift;
+	private long mask;
+	// log2 of the bytes in a cell
+	private int cellBits;
+	// the parts of the triangle
+	private ByteBuffer[] parts;
+
+	/**
+	 * OffHeapCells constructor makes a triangle with every cell set to 0
+	 *
+	 * @param n - the number of keys plus one
+	 * @param cellBytes - the bytes in a cell, 4 or 8
+	 * @param directory - directory for the temporary file to map, or null for direct buffers
+	 */
+	OffHeapCells( int n, int cellBytes, Path directory ) {
+		this.n = n;
+		cellBits = Integer.numberOfTrailingZeros( cellBytes );
+		shift = PART_BITS - cellBits;
+		mask = ( 1L << shift ) - 1;
+		rowStart = new long[ n + 2 ];
+		long start = 0;
+		for ( int i = 1; i < ( n + 2 ); i++ ) {
+			rowStart[ i ] = start - ( i - 1 );
+			start += n - i + 1;
+		}
+		long cells = ( long ) n * ( n + 1 ) / 2;
+		int count = ( int ) ( ( cells + mask ) >>> shift );
+		parts = new ByteBuffer[ Math.max( 1, count ) ];
+		if ( directory == null ) {
+			for ( int part = 0; part < parts.length; part++ ) {
+				parts[ part ] = ByteBuffer.allocateDirect( ( int ) ( partCells( cells, part ) << cellBits ) )
+						.order( ByteOrder.nativeOrder() );
+			}
+		} else {
+			map( directory, cells );
+		}
+	}
+
+	/**
+	 * map makes a temporary file for the triangle and maps every part of it. the file is deleted
+	 * straight away, the mappings keep the space until they are garbage collected
+	 *
+	 * @param directory - directory for the temporary file
+	 * @param cells - the number of cells
+	 */
+	private void map( Path directory, long cells ) {
+		try {
+			Path file = Files.createTempFile( directory, "obst", ".table" );
+			try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE ) ) {
+				for ( int part = 0; part < parts.length; part++ ) {
+					long offset = ( long ) part << PART_BITS;
+					parts[ part ] = channel.map( FileChannel.MapMode.READ_WRITE, offset, partCells( cells, part ) << cellBits )
+							.order( ByteOrder.nativeOrder() );
+				}
+			} finally {
+				try {
+					Files.delete( file );
+				} catch ( IOException e ) {
+					// some systems can not delete a mapped file
+					file.toFile().deleteOnExit();
+				}
+			}
+		} catch ( IOException e ) {
+			throw new UncheckedIOException( "the table could not be mapped in " + directory, e );
+		}
+	}
+
+	private long partCells( long cells, int part ) {
+		return Math.min( 1L << shift, cells - ( ( long ) part << shift ) );
+	}
+
+	int getSize() {
+		return n;
+	}
+
+	long getBytes() {
+		long bytes = ( long ) rowStart.length * Long.BYTES;
+		for ( ByteBuffer part : parts ) {
+			bytes += part.capacity();
+		}
+		return bytes;
+	}
+
+	boolean contains( int i, int j ) {
+		return i >= 1 && i <= n && j >= i - 1 && j < n;
+	}
+
+	double getDouble( int i, int j ) {
+		long cell = rowStart[ i ] + j;
+		return parts[ ( int ) ( cell >>> shift ) ].getDouble( ( int ) ( cell & mask ) << cellBits );
+	}
+
+	void putDouble( int i, int j, double value ) {
+		long cell = rowStart[ i ] + j;
+		parts[ ( int ) ( cell >>> shift ) ].putDouble( ( int ) ( cell & mask ) << cellBits, value );
+	}
+
+	int getInt( int i, int j ) {
+		long cell = rowStart[ i ] + j;
+		return parts[ ( int ) ( cell >>> shift ) ].getInt( ( int ) ( cell & mask ) << cellBits );
+	}
+
+	void putInt( int i, int j, int value ) {
+		long cell = rowStart[ i ] + j;
+		parts[ ( int ) ( cell >>> shift ) ].putInt( ( int ) ( cell & mask ) << cellBits, value );
+	}
+}
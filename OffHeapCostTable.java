@@ -0,0 +1,43 @@
+import java.nio.file.Path;
+
+/**
+ * OffHeapCostTable stores the used upper triangle of a CostTable outside of the Java heap, see
+ * OffHeapCells. it is not limited to the size of a Java array like PackedCostTable.
+ *
+ * @category Dynamic Programming
+ */
+public class OffHeapCostTable implements CostTable {
+
+	// the stored cells
+	private OffHeapCells cells;
+
+	/**
+	 * OffHeapCostTable constructor makes a table with every cell set to 0
+	 *
+	 * @param n - the number of keys plus one ( the same n that is passed to OptimalBinarySearchTree )
+	 * @param directory - directory for the temporary file to map, or null for direct buffers
+	 */
+	public OffHeapCostTable( int n, Path directory ) {
+		cells = new OffHeapCells( n, Double.BYTES, directory );
+	}
+
+	public int getSize() {
+		return cells.getSize();
+	}
+
+	public long getBytes() {
+		return cells.getBytes();
+	}
+
+	public boolean contains( int i, int j ) {
+		return cells.contains( i, j );
+	}
+
+	public double get( int i, int j ) {
+		return cells.getDouble( i, j );
+	}
+
+	public void set( int i, int j, double value ) {
+		cells.putDouble( i, j, value );
+	}
+}
@@ -0,0 +1,43 @@
+import java.nio.file.Path;
+
+/**
+ * OffHeapRootTable stores the used upper triangle of a RootTable outside of the Java heap, see
+ * OffHeapCells. it is not limited to the size of a Java array like PackedRootTable.
+ *
+ * @category Dynamic Programming
+ */
+public class OffHeapRootTable implements RootTable {
+
+	// the stored cells
+	private OffHeapCells cells;
+
+	/**
+	 * OffHeapRootTable constructor makes a table with every cell set to 0
+	 *
+	 * @param n - the number of keys plus one ( the same n that is passed to OptimalBinarySearchTree )
+	 * @param directory - directory for the temporary file to map, or null for direct buffers
+	 */
+	public OffHeapRootTable( int n, Path directory ) {
+		cells = new OffHeapCells( n, Integer.BYTES, directory );
+	}
+
+	public int getSize() {
+		return cells.getSize();
+	}
+
+	public long getBytes() {
+		return cells.getBytes();
+	}
+
+	public boolean contains( int i, int j ) {
+		return cells.contains( i, j );
+	}
+
+	public int get( int i, int j ) {
+		return cells.getInt( i, j );
+	}
+
+	public void set( int i, int j, int value ) {
+		cells.putInt( i, j, value );
+	}
+}
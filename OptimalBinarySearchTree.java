@@ -1,4 +1,9 @@
 import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * 
@@ -15,16 +20,151 @@ import java.io.PrintWriter;
  */
 public class OptimalBinarySearchTree {
 	
+	/**
+	 * Engine selects how the cost and the tree are calculated. there are five engines:
+	 * 
+	 *   engine           tree                                 tables kept
+	 *   CUBIC            optimal                              expectedCosts, weights and roots
+	 *   KNUTH            optimal                              expectedCosts, weights and roots
+	 *   ALPHABETIC       optimal, when every p[i] is zero     none
+	 *   APPROXIMATE      nearly optimal                       none
+	 *   HEIGHT_LIMITED   optimal within the height limit      none
+	 * 
+	 * CUBIC and KNUTH produce the same expectedCosts and roots. the only exception is when two roots
+	 * tie exactly and rounding makes one of them look smaller, in which case they may keep different
+	 * ( equally optimal ) roots and the costs differ in the last bits. ALPHABETIC gives the same cost
+	 * as they do for its input, and HEIGHT_LIMITED does too when the optimal tree fits in the limit,
+	 * but the tree may be a different one of equal cost. only the engines with tables support
+	 * getExpectedCosts, getWeights, getRoots and update.
+	 * 
+	 * CUBIC tries every root r from i to j, which is the O(n^3) algorithm from the book.
+	 * KNUTH only tries roots between roots[i][j-1] and roots[i+1][j], which is valid because the
+	 * optimal roots are monotone (Knuth, 1971). the total work over a diagonal telescopes to O(n),
+	 * so the whole calculation takes O(n^2) time.
+	 * ALPHABETIC is only valid when every p[i] is zero. it builds the optimal alphabetic tree over
+	 * the dummy keys with the Garsia-Wachs algorithm and does not allocate the three matrices.
+	 * APPROXIMATE does not search for the optimal tree. it picks every root by splitting the weight
+	 * of its range in half ( Mehlhorn's bisection rule ), which takes O(n log n) time and O(n) memory,
+	 * so it works for millions of keys. the cost is at most getCostBound(), which is within a small
+	 * additive amount of the entropy of the probabilities, and the matrices are not allocated either.
+	 * HEIGHT_LIMITED finds the optimal tree among the trees with at most SolverOptions.getMaxHeight()
+	 * levels, so no search takes more comparisons than that. it takes O(L n^3) time for a limit of L
+	 * levels and does not keep the matrices. getUnconstrainedCost() gives the cost of the optimal tree
+	 * without the limit, and getHeightPenalty() what the limit costs.
+	 */
+	public enum Engine {
+		CUBIC,
+		KNUTH,
+		ALPHABETIC,
+		APPROXIMATE,
+		HEIGHT_LIMITED
+	}
+	
+	/**
+	 * Layout selects how the expected costs table is stored.
+	 * 
+	 * PACKED stores the upper triangle once, row by row.
+	 * MIRRORED also keeps a copy column by column, so both reads of the inner r loop are
+	 * contiguous in memory. it takes twice the memory of PACKED for the expected costs. it pays
+	 * off for the CUBIC engine, whose r loops are long, while the short r loops of the KNUTH engine
+	 * gain less than the second write to every cell costs.
+	 */
+	public enum Layout {
+		PACKED,
+		MIRRORED
+	}
+	
+	/**
+	 * Storage selects where the tables of the CUBIC and KNUTH engines are kept.
+	 * 
+	 * HEAP keeps them in Java arrays.
+	 * DIRECT keeps them in direct buffers outside of the heap, so the garbage collector never
+	 * has to look at them. they count against -XX:MaxDirectMemorySize, which is -Xmx unless it is set.
+	 * MAPPED keeps them in a temporary file in SolverOptions.getStorageDirectory() that is mapped
+	 * into memory, so the operating system can page them out when they do not fit in memory.
+	 * both off heap storages only use the PACKED layout and can hold more than 65000 keys.
+	 */
+	public enum Storage {
+		HEAP,
+		DIRECT,
+		MAPPED
+	}
+	
+	/**
+	 * Precision selects the type of the cells of the expected costs and weights tables.
+	 * 
+	 * DOUBLE keeps them as doubles.
+	 * FLOAT keeps them as floats in a FloatCostTable, which halves their memory. every cost is
+	 * rounded to about seven significant digits, so the tree can be a little worse than the optimal
+	 * one when two roots have nearly the same cost. it only works with HEAP storage and the PACKED layout.
+	 * to calculate with exact whole numbers, give search counts to OptimalBinarySearchTreeSolver.solveCounts.
+	 */
+	public enum Precision {
+		DOUBLE,
+		FLOAT
+	}
+	
+	/**
+	 * Phase names the steps of a build that are timed in BuildMetrics.
+	 * 
+	 * VALIDATION checks the keys and probabilities.
+	 * ALLOCATION makes the tables. the ALPHABETIC and APPROXIMATE engines have no tables and make
+	 * their O(n) arrays as part of SOLVE.
+	 * SOLVE runs the engine, which is the time getRuntime returns.
+	 * TREE makes the tree and the LookupTree.
+	 * OUTPUT writes the tree out, added up over every call. the traversals time themselves, and a
+	 * caller that writes other results, like the c, w and r matrices or a results file, adds its time
+	 * with endOutput. the driver does that for everything it writes.
+	 */
+	public enum Phase {
+		VALIDATION,
+		ALLOCATION,
+		SOLVE,
+		TREE,
+		OUTPUT
+	}
+	
+	/**
+	 * TreeForm selects how the finished tree is stored.
+	 * 
+	 * NODES makes a Node object for every key.
+	 * FLAT makes a FlatTree, which keeps the keys and children in three int arrays.
+	 */
+	public enum TreeForm {
+		NODES,
+		FLAT
+	}
+	
 	// stores the keys of the tree in a sorted fashion (e from the book)
 	private int[] keys;
-	// stores the expected cost of the tree
-	private double[][] expectedCosts;
-	// stores the weights (w from the book)
-	private double[][] weights;
-	// stores the roots (r from the book)
-	private int[][] roots;
-	// the root of the binary search tree
+	// stores the expected cost of the tree, as a packed ( or mirrored ) upper triangle
+	private CostTable expectedCosts;
+	// stores the weights (w from the book), as a packed upper triangle or as prefix sums
+	private CostTable weights;
+	// true when the weights are worked out from prefix sums instead of being stored
+	private boolean prefixSumWeights;
+	// true when the root search is restricted to Knuth's bound
+	private boolean knuthBound;
+	// how the finished tree is stored
+	private TreeForm treeForm;
+	// stores the roots (r from the book), as a packed upper triangle
+	private RootTable roots;
+	// the root of the binary search tree, when it is made out of Node objects
 	private Node root;
+	// the binary search tree, when it is stored in arrays
+	private FlatTree flatTree;
+	// copy of the tree that is laid out for searching
+	private LookupTree lookupTree;
+	// the expected cost of the whole tree ( expectedCosts[1][n-1] for the matrix engines )
+	private double cost;
+	// the largest cost the engine can give for these probabilities
+	private double costBound;
+	// the expected cost of the optimal tree without a limit on its height
+	private double unconstrainedCost;
+	
+	// the times and counts of the build, and who is told about every phase
+	private BuildMetrics metrics;
+	private BuildListener listener;
 	
 	private Long startTime;	// variables to store time in nanoseconds
 	private Long endTime; 
@@ -32,7 +172,9 @@ public class OptimalBinarySearchTree {
 	/**
 	 * OptimalBinarySearchTree constructor. this constructor is in charge of
 	 * getting invoking all of methods necessary in order to construct
-	 * an optimal binary search tree with the given parameters
+	 * an optimal binary search tree with the given parameters. the Knuth bounded
+	 * engine is used, since it gives the same result as the cubic engine in O(n^2) time.
+	 * when every p[i] is zero the alphabetic engine is used instead
 	 * 
 	 * @param keys - an array of keys
 	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
@@ -40,258 +182,1310 @@ public class OptimalBinarySearchTree {
 	 * @param n - the number of keys
 	 */
 	public OptimalBinarySearchTree( int[] keys, double[] p, double[] q, int n ) {
+		this( keys, p, q, n, new SolverOptions() );
+	}
+	
+	/**
+	 * OptimalBinarySearchTree constructor that lets the caller pick the engine used
+	 * to calculate the cost and tree structure
+	 * 
+	 * @param keys - an array of keys
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes ).
+	 * @param n - the number of keys
+	 * @param engine - Engine used to calculate the tree, any of the five, see Engine. HEIGHT_LIMITED
+	 *                 has no limit unless it is given through SolverOptions.setMaxHeight
+	 */
+	public OptimalBinarySearchTree( int[] keys, double[] p, double[] q, int n, Engine engine ) {
+		this( keys, p, q, n, new SolverOptions( engine ) );
+	}
+	
+	/**
+	 * OptimalBinarySearchTree constructor that takes every choice about how the cost and
+	 * tree structure are calculated from a SolverOptions
+	 * 
+	 * @param keys - an array of keys
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes ).
+	 * @param n - the number of keys
+	 * @param options - SolverOptions with the engine, the storage of the weights and the pool
+	 */
+	public OptimalBinarySearchTree( int[] keys, double[] p, double[] q, int n, SolverOptions options ) {
+		long phaseStart = System.nanoTime();
+		validate( keys, p, q, n );
+		Engine engine = options.getEngine();
+		if ( engine == null ) {
+			engine = isMissOnly( p, n ) ? Engine.ALPHABETIC : Engine.KNUTH;
+		}
+		this.metrics = new BuildMetrics( engine );
+		this.listener = options.getListener();
 		this.keys = keys.clone();
-		expectedCosts = new double[ n + 1 ][ n ];
-		weights = new double[ n + 1 ][ n ];
-		roots = new int[ n + 1 ][ n ];
+		this.treeForm = options.getTreeForm();
+		phaseStart = endPhase( Phase.VALIDATION, phaseStart );
+
+		if ( engine == Engine.ALPHABETIC || engine == Engine.APPROXIMATE || engine == Engine.HEIGHT_LIMITED ) {
+			if ( engine == Engine.ALPHABETIC && !isMissOnly( p, n ) ) {
+				throw new IllegalArgumentException( "the alphabetic engine needs every p[i] to be zero" );
+			}
+			phaseStart = endPhase( Phase.ALLOCATION, phaseStart );
+			startTimer();
+			// these engines build the tree and cost directly
+			FlatTree shape;
+			if ( engine == Engine.ALPHABETIC ) {
+				shape = garsiaWachs( q, n );
+			} else if ( engine == Engine.APPROXIMATE ) {
+				shape = bisection( p, q, n );
+			} else {
+				shape = heightLimited( p, q, n, options.getMaxHeight() );
+			}
+			endTimer();
+			this.costBound = engine == Engine.APPROXIMATE ? entropyBound( p, q, n ) : cost;
+			if ( engine != Engine.HEIGHT_LIMITED ) {
+				this.unconstrainedCost = cost;
+			}
+			phaseStart = endPhase( Phase.SOLVE, phaseStart );
+			this.lookupTree = new LookupTree( shape );
+			if ( options.getTreeForm() == TreeForm.NODES ) {
+				this.root = shape.toNode();
+			} else {
+				this.flatTree = shape;
+			}
+			finishTree( p, q, n, phaseStart );
+			return;
+		}
+
+		Storage storage = options.getStorage();
+		Path directory = storage == Storage.MAPPED ? options.getStorageDirectory() : null;
+		boolean single = options.getPrecision() == Precision.FLOAT;
+		if ( storage != Storage.HEAP && options.getLayout() == Layout.MIRRORED ) {
+			throw new IllegalArgumentException( "the mirrored layout is only kept on the heap" );
+		}
+		if ( single && ( storage != Storage.HEAP || options.getLayout() == Layout.MIRRORED ) ) {
+			throw new IllegalArgumentException( "float tables are only kept on the heap in the packed layout" );
+		}
+		// a heap table that does not fit in one array is kept with an array per row instead
+		boolean packed = PackedCostTable.fits( n );
+		if ( storage == Storage.HEAP && !packed && ( single || options.getLayout() == Layout.MIRRORED ) ) {
+			throw new IllegalArgumentException( "n = " + n + " is too large for float tables or the mirrored layout" );
+		}
+		if ( storage != Storage.HEAP ) {
+			expectedCosts = new OffHeapCostTable( n, directory );
+		} else if ( single ) {
+			expectedCosts = new FloatCostTable( n );
+		} else if ( options.getLayout() == Layout.MIRRORED ) {
+			expectedCosts = new MirroredCostTable( n );
+		} else if ( packed ) {
+			expectedCosts = new PackedCostTable( n );
+		} else {
+			expectedCosts = new RowCostTable( n );
+		}
+		prefixSumWeights = options.isPrefixSumWeights();
+		if ( prefixSumWeights ) {
+			weights = new PrefixSumWeights( p, q, n );
+		} else if ( storage != Storage.HEAP ) {
+			weights = new OffHeapCostTable( n, directory );
+		} else if ( single ) {
+			weights = new FloatCostTable( n );
+		} else if ( packed ) {
+			weights = new PackedCostTable( n );
+		} else {
+			weights = new RowCostTable( n );
+		}
+		if ( storage != Storage.HEAP ) {
+			roots = new OffHeapRootTable( n, directory );
+		} else if ( packed ) {
+			roots = new PackedRootTable( n );
+		} else {
+			roots = new RowRootTable( n );
+		}
+		knuthBound = engine == Engine.KNUTH;
+		metrics.setTableBytes( expectedCosts.getBytes() + weights.getBytes() + roots.getBytes() );
+		phaseStart = endPhase( Phase.ALLOCATION, phaseStart );
 
 		startTimer();
 		// calculate the cost and tree structure
-		OptimalBST(p, q, n);
+		OptimalBST(p, q, n, knuthBound, options.getPool(), options.getParallelChunk() );
 		endTimer();
+		cost = expectedCosts.get( 1, n - 1 );
+		costBound = cost;
+		unconstrainedCost = cost;
+		phaseStart = endPhase( Phase.SOLVE, phaseStart );
 
-		// make the tree
-		this.root = makeTree( 1, n - 1);
+		// make the tree, and the copy of it that is laid out for searching
+		FlatTree shape = FlatTree.fromRoots( roots, this.keys, n );
+		this.lookupTree = new LookupTree( shape );
+		if ( options.getTreeForm() == TreeForm.FLAT ) {
+			this.flatTree = shape;
+		} else {
+			this.root = makeTree( 1, n - 1);
+		}
+		finishTree( p, q, n, phaseStart );
+	}
+	
+	/**
+	 * validate checks that the input describes a tree
+	 * 
+	 * @param keys - an array of keys
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param n - the number of keys
+	 * @throws IllegalArgumentException when an array is too short, the keys are not in ascending
+	 * order, or a probability is negative or not a number
+	 */
+	static void validate( int[] keys, double[] p, double[] q, int n ) {
+		if ( n < 1 ) {
+			throw new IllegalArgumentException( "n must be at least 1, it is the number of keys plus one" );
+		}
+		if ( keys.length < n - 1 || p.length < n || q.length < n ) {
+			throw new IllegalArgumentException( "n = " + n + " needs " + ( n - 1 ) + " keys and " + n + " entries in p and q" );
+		}
+		for ( int i = 0; i < n; i++ ) {
+			if ( i > 0 && !( p[ i ] >= 0 && p[ i ] < Double.POSITIVE_INFINITY ) ) {
+				throw new IllegalArgumentException( "p[" + i + "] = " + p[ i ] + " is not a probability" );
+			}
+			if ( !( q[ i ] >= 0 && q[ i ] < Double.POSITIVE_INFINITY ) ) {
+				throw new IllegalArgumentException( "q[" + i + "] = " + q[ i ] + " is not a probability" );
+			}
+			if ( i > 1 && keys[ i - 1 ] < keys[ i - 2 ] ) {
+				throw new IllegalArgumentException( "the keys are not in ascending order at keys[" + ( i - 1 ) + "]" );
+			}
+		}
+	}
+	
+	/**
+	 * finishTree ends the TREE phase and fills in the height and expected comparisons of the tree
+	 * 
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param n - the number of keys
+	 * @param phaseStart - the time the TREE phase started
+	 */
+	private void finishTree( double[] p, double[] q, int n, long phaseStart ) {
+		double total = 0;
+		double misses = 0;
+		for ( int i = 0; i < n; i++ ) {
+			total += ( i > 0 ? p[ i ] : 0 ) + q[ i ];
+			misses += q[ i ];
+		}
+		// the cost counts a miss that ends below a key at depth d as d + 1, but it compared with d keys
+		metrics.setTree( lookupTree.height(), total > 0 ? ( cost - misses ) / total : 0 );
+		endPhase( Phase.TREE, phaseStart );
+	}
+	
+	/**
+	 * endOutput adds the time spent writing results of this tree outside of it, such as the matrices
+	 * written with a MatrixWriter, to the OUTPUT phase
+	 * 
+	 * @param outputStart - the time the writing started, from System.nanoTime
+	 */
+	public void endOutput( long outputStart ) {
+		endPhase( Phase.OUTPUT, outputStart );
+	}
+	
+	/**
+	 * endPhase adds the time since phaseStart to a phase and tells the listener
+	 * 
+	 * @param phase - the phase that finished
+	 * @param phaseStart - the time the phase started, from System.nanoTime
+	 * @return - long which is the time now, where the next phase starts
+	 */
+	private long endPhase( Phase phase, long phaseStart ) {
+		long now = System.nanoTime();
+		metrics.addPhase( phase, now - phaseStart );
+		if ( listener != null ) {
+			listener.phaseFinished( phase, now - phaseStart, metrics );
+		}
+		return now;
+	}
+	
+	/**
+	 * isMissOnly checks if every key has a zero probability of being searched for, which
+	 * means only the dummy keys matter and the tree can be built by the alphabetic engine
+	 * 
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param n - the number of keys
+	 * @return - true when p[1] through p[n-1] are all zero
+	 */
+	private static boolean isMissOnly( double[] p, int n ) {
+		for ( int i = 1; i < n; i++ ) {
+			if ( p[ i ] != 0 ) {
+				return false;
+			}
+		}
+		return true;
 	}
 	
 	/**
 	 * OptimaalBST does the calculations and populates the three matrices expectedCost,
 	 * weights, and roots. this method takes O(n^3) time as we can easily see that the nested for loops
-	 * are three deep and each loop index takes on at most n values. 
+	 * are three deep and each loop index takes on at most n values. when knuthBound is set, the
+	 * r loop only runs from roots[i][j-1] to roots[i+1][j], which brings the total down to O(n^2).
+	 * when the weights are prefix sums they are only read, not filled in
+	 * 
+	 * every cell with chain length l only depends on shorter chains, so when a pool is given each
+	 * diagonal is split over the pool, and the next diagonal starts after the whole diagonal is done.
+	 * every cell is calculated the same way in both cases, so the result does not change
 	 * 
 	 * @param p - array of doubles of the probabilities that Pi is searched for ( real nodes )
 	 * @param q - array of doubles of the probabilities that Qi is searched for ( dummy nodes )
 	 * @param n - the number of keys
+	 * @param knuthBound - true to restrict the root search to Knuth's monotonicity bound
+	 * @param pool - ForkJoinPool to calculate the diagonals on, or null to calculate them on this thread
+	 * @param chunk - the smallest number of cells that is handed to a task of its own
 	 */
-	private void OptimalBST( double[] p, double[] q, int n ) {
+	private void OptimalBST( double[] p, double[] q, int n, boolean knuthBound, ForkJoinPool pool, int chunk ) {
 		for ( int i = 1; i < ( n + 1 ); i++ ) {
-			expectedCosts[ i ][ i - 1 ] = q[ i - 1 ];
-			weights[ i ][ i - 1 ] = q[ i - 1 ];
+			expectedCosts.set( i, i - 1, q[ i - 1 ] );
+			if ( !prefixSumWeights ) {
+				weights.set( i, i - 1, q[ i - 1 ] );
+			}
 		}
 		
+		long candidates = 0;
 		for ( int l = 1; l < n; l++ ) {
-			for ( int i = 1; i < ( n - l + 1 ); i++ ) {
-				int j = i + l - 1;
-				expectedCosts[ i ][ j ] = Integer.MAX_VALUE;
-				weights[ i ][ j ] = weights[ i ][ ( j - 1 ) ] + p[ j ] + q[ j ];
-				
-				for ( int r = i; r < j + 1; r++ ) {
-					double t = expectedCosts[ i ][ ( r - 1 ) ] + expectedCosts[ ( r + 1 ) ][ j ] + weights[ i ][ j ];
-					if ( t < expectedCosts[ i ][ j ] ) {
-						expectedCosts[ i ][ j ] = t;
-						roots[ i ][ j ] = r;
-					}
+			// short diagonals are not worth the overhead of the tasks
+			if ( pool != null && ( n - l ) >= 2 * chunk ) {
+				pool.invoke( new DiagonalTask( p, q, l, 1, n - l + 1, knuthBound, chunk ) );
+			} else {
+				for ( int i = 1; i < ( n - l + 1 ); i++ ) {
+					candidates += OptimalCell( p, q, i, i + l - 1, knuthBound );
 				}
+				metrics.addCells( n - l, candidates );
+				candidates = 0;
 			}
 		}
 	}
 	
 	/**
-	 * makeTree creates the optimal binary search tree after the calculations from OptimalBST have been performed
+	 * OptimalCell calculates the weight, the best expected cost and the root of a single cell [i][j]
+	 * of this tree's tables, see calculateCell
 	 * 
+	 * @param p - array of doubles of the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles of the probabilities that Qi is searched for ( dummy nodes )
 	 * @param i - index i
 	 * @param j - index j
-	 * @return - Node which is used in the recursive formula to attach nodes, and to return the root to the originally called method
+	 * @param knuthBound - true to restrict the root search to Knuth's monotonicity bound
+	 * @return - int which is the number of roots that were tried
 	 */
-	private Node makeTree( int i, int j ) {
-
-		if ( i > j ) {
-			return null;
+	private int OptimalCell( double[] p, double[] q, int i, int j, boolean knuthBound ) {
+		return calculateCell( expectedCosts, weights, roots, p, q, i, j, knuthBound, !prefixSumWeights );
+	}
+	
+	/**
+	 * calculateCell calculates the weight, the best expected cost and the root of a single cell [i][j].
+	 * every cell it reads has a shorter chain length. this is the one place a cell is calculated, for
+	 * OptimalBST and for OptimalBinarySearchTreeSolver
+	 * 
+	 * @param expectedCosts - the table of expected costs
+	 * @param weights - the table of weights
+	 * @param roots - the table of roots
+	 * @param p - array of doubles of the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles of the probabilities that Qi is searched for ( dummy nodes )
+	 * @param i - index i
+	 * @param j - index j
+	 * @param knuthBound - true to restrict the root search to Knuth's monotonicity bound
+	 * @param fillWeights - true to work out the weight from weights[i][j-1] and store it, false when
+	 *                      the weights can only be read, like prefix sums
+	 * @return - int which is the number of roots that were tried
+	 */
+	static int calculateCell( CostTable expectedCosts, CostTable weights, RootTable roots, double[] p, double[] q,
+			int i, int j, boolean knuthBound, boolean fillWeights ) {
+		double weight;
+		if ( fillWeights ) {
+			weight = weights.get( i, ( j - 1 ) ) + p[ j ] + q[ j ];
+			weights.set( i, j, weight );
 		} else {
-			Node node = new Node( keys[ roots[ i ][ j ] - 1 ] );
-			node.setLeftChild( makeTree( i, roots[ i ][ j ] - 1 ) );
-			node.setRightChild( makeTree( roots[ i ][ j ] + 1, j ) );
-			return node;
+			weight = weights.get( i, j );
+		}
+		
+		// a single key is always its own root, otherwise the bound is [ roots[i][j-1], roots[i+1][j] ]
+		int first = i;
+		int last = j;
+		if ( knuthBound && i < j ) {
+			first = roots.get( i, ( j - 1 ) );
+			last = roots.get( ( i + 1 ), j );
 		}
+		
+		// the r loop is done by the table, so it can read the cells in the order of its layout
+		int bestRoot = expectedCosts.bestRoot( i, j, first, last, weight );
+		double best = Double.POSITIVE_INFINITY;
+		if ( bestRoot > 0 ) {
+			best = expectedCosts.get( i, ( bestRoot - 1 ) ) + expectedCosts.get( ( bestRoot + 1 ), j ) + weight;
+		}
+		expectedCosts.set( i, j, best );
+		roots.set( i, j, bestRoot );
+		return last - first + 1;
 	}
 	
-	public int[] getKeys() {
-		return keys;
+	/**
+	 * DiagonalTask calculates the cells [i][i+l-1] of one diagonal for i = from .. to - 1. it splits
+	 * itself in half until a task holds fewer than two chunks of cells
+	 */
+	private class DiagonalTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private double[] p;
+		private double[] q;
+		private int l;
+		private int from;
+		private int to;
+		private boolean knuthBound;
+		private int chunk;
+		
+		DiagonalTask( double[] p, double[] q, int l, int from, int to, boolean knuthBound, int chunk ) {
+			this.p = p;
+			this.q = q;
+			this.l = l;
+			this.from = from;
+			this.to = to;
+			this.knuthBound = knuthBound;
+			this.chunk = chunk;
+		}
+		
+		@Override
+		protected void compute() {
+			if ( to - from < 2 * chunk ) {
+				long candidates = 0;
+				for ( int i = from; i < to; i++ ) {
+					candidates += OptimalCell( p, q, i, i + l - 1, knuthBound );
+				}
+				metrics.addCells( to - from, candidates );
+			} else {
+				int middle = ( from + to ) >>> 1;
+				invokeAll( new DiagonalTask( p, q, l, from, middle, knuthBound, chunk ),
+						new DiagonalTask( p, q, l, middle, to, knuthBound, chunk ) );
+			}
+		}
 	}
 	
 	/**
-	 * getExpectedCosts returns a 2D array of doubles which is the best expected costs for the OBST
-	 * @return - 2D array of doubles that contains the best expected costs for the OBST
+	 * garsiaWachs builds the optimal tree when only the dummy keys have a probability. the dummy
+	 * keys are the leaves of an alphabetic tree, so the Garsia-Wachs algorithm is used in three steps:
+	 * 
+	 * 1) combine the weights q[0] .. q[n-1] into a ( non alphabetic ) tree, which only gives the
+	 *    depth of every dummy key. this uses the stack formulation from Knuth, TAOCP vol. 3, 6.2.2
+	 * 2) find the depth of every dummy key in that tree
+	 * 3) rebuild the alphabetic tree with the same dummy key depths. the key between dummy keys
+	 *    d(g) and d(g+1) is keys[g]
 	 * 
+	 * the working sequence is a WeightSequence, so each of the n - 1 combinations takes O(log n)
+	 * time and the whole method takes O(n log n) time and O(n) memory
+	 * 
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param n - the number of keys
+	 * @return - FlatTree which is the tree
 	 */
-	public double[][] getExpectedCosts() {
-		return expectedCosts;
+	private FlatTree garsiaWachs( double[] q, int n ) {
+		// nodes 0 .. n - 1 are the dummy keys, n .. 2n - 2 are combined nodes and 2n - 1 is a
+		// sentinel at the front of the sequence that is larger than every weight
+		int[] left = new int[ 2 * n ];
+		int[] right = new int[ 2 * n ];
+		int nodes = n;
+		WeightSequence sequence = new WeightSequence( 2 * n );
+		sequence.add( 2 * n - 1, Double.POSITIVE_INFINITY );
+		// combined nodes that were moved left and still have to be checked, stored by their distance
+		// from the end of the sequence, which does not change while nodes to the left are combined
+		int[] pending = new int[ n ];
+		int size = 0;
+		
+		// step 1, after the last dummy key an infinite sentinel follows, so the last two get combined
+		for ( int g = 0; g < n + 1; g++ ) {
+			int t = sequence.size();
+			int k;
+			if ( g < n ) {
+				sequence.add( g, q[ g ] );
+				t++;
+				if ( t < 3 || sequence.weightAt( t - 3 ) > q[ g ] ) {
+					continue;
+				}
+				k = t - 2;
+			} else if ( t > 2 ) {
+				k = t - 1;
+			} else {
+				break;
+			}
+			
+			while ( k > 0 ) {
+				// combine the nodes at k - 1 and k, then move the new node left past every smaller weight
+				int combined = nodes++;
+				left[ combined ] = sequence.nodeAt( k - 1 );
+				right[ combined ] = sequence.nodeAt( k );
+				double combinedWeight = sequence.weightAt( k - 1 ) + sequence.weightAt( k );
+				int position = sequence.lastAtLeast( k - 1, combinedWeight ) + 1;
+				sequence.removePair( k - 1 );
+				sequence.insert( position, combined, combinedWeight );
+				pending[ size++ ] = t - 1 - position;
+				t--;
+				
+				// find the next pair to combine, or stop when the sequence is in order again
+				k = 0;
+				while ( size > 0 && k == 0 ) {
+					position = t - pending[ size - 1 ];
+					if ( position >= 2 && sequence.weightAt( position - 2 ) <= sequence.weightAt( position ) ) {
+						k = position - 1;
+					} else {
+						size--;
+					}
+				}
+				if ( k == 0 && g < n && t >= 3 && sequence.weightAt( t - 3 ) <= sequence.weightAt( t - 1 ) ) {
+					k = t - 2;
+				} else if ( k == 0 && g == n && t > 2 ) {
+					k = t - 1;
+				}
+			}
+		}
+		
+		// step 2, find the depth of every dummy key
+		int[] depth = new int[ n ];
+		int[] stack = new int[ n + 1 ];
+		int[] stackDepth = new int[ n + 1 ];
+		size = 0;
+		stack[ size ] = sequence.nodeAt( 1 );
+		stackDepth[ size++ ] = 0;
+		while ( size > 0 ) {
+			int node = stack[ --size ];
+			int nodeDepth = stackDepth[ size ];
+			if ( node < n ) {
+				depth[ node ] = nodeDepth;
+			} else {
+				stack[ size ] = left[ node ];
+				stackDepth[ size++ ] = nodeDepth + 1;
+				stack[ size ] = right[ node ];
+				stackDepth[ size++ ] = nodeDepth + 1;
+			}
+		}
+		
+		// step 3, rebuild the tree in key order. two neighbouring subtrees at the same depth
+		// become the children of a key at one level up. key g is node g of the FlatTree
+		int[] subtree = new int[ n ];
+		int[] lastLeaf = new int[ n ];
+		int[] keyLeft = new int[ n - 1 ];
+		int[] keyRight = new int[ n - 1 ];
+		cost = 0;
+		size = 0;
+		for ( int g = 0; g < n; g++ ) {
+			cost += q[ g ] * ( depth[ g ] + 1 );
+			subtree[ size ] = FlatTree.NONE;
+			lastLeaf[ size ] = g;
+			stackDepth[ size++ ] = depth[ g ];
+			while ( size > 1 && stackDepth[ size - 1 ] == stackDepth[ size - 2 ] ) {
+				int node = lastLeaf[ size - 2 ];
+				keyLeft[ node ] = subtree[ size - 2 ];
+				keyRight[ node ] = subtree[ size - 1 ];
+				size--;
+				subtree[ size - 1 ] = node;
+				lastLeaf[ size - 1 ] = lastLeaf[ size ];
+				stackDepth[ size - 1 ]--;
+			}
+		}
+		return new FlatTree( keys, keyLeft, keyRight, subtree[ 0 ] );
 	}
 	
 	/**
-	 * getWeights returns a 2D array of doubles which is the one time calculated weights
+	 * bisection builds a nearly optimal tree with Mehlhorn's bisection rule ( Mehlhorn, 1975 ). every
+	 * dummy key g is placed at the middle s[g] of its own weight on a line of length W, the total
+	 * weight. the root of a range is the key whose position is closest to the middle of the interval the
+	 * range was given, then the left half of the interval goes to the keys left of the root and the right
+	 * half to the keys right of it. a key with weight x ends up at depth log2( W / x ) or less, which
+	 * gives the bound from entropyBound. the root of each range is found by a binary search on s,
+	 * and the ranges that still have to be built are kept on an explicit stack
 	 * 
-	 * @return - 2D array of doubles that contain the weights 
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param n - the number of keys
+	 * @return - FlatTree which is the tree
 	 */
-	public double[][] getWeights() {
-		return weights;
+	private FlatTree bisection( double[] p, double[] q, int n ) {
+		int[] left = new int[ n - 1 ];
+		int[] right = new int[ n - 1 ];
+		cost = q[ 0 ];
+		if ( n < 2 ) {
+			return new FlatTree( keys, left, right, FlatTree.NONE );
+		}
+		
+		// s[g] is the weight of everything left of dummy key g plus half of q[g]
+		double[] s = new double[ n ];
+		double sum = 0;
+		for ( int g = 0; g < n; g++ ) {
+			if ( g > 0 ) {
+				sum += p[ g ];
+			}
+			s[ g ] = sum + q[ g ] / 2;
+			sum += q[ g ];
+		}
+		
+		// each entry is the dummy keys from .. to, the interval [ cut, cut + width ] that holds them,
+		// their depth and the node that the root of the range hangs from
+		int[] from = new int[ n ];
+		int[] to = new int[ n ];
+		double[] cut = new double[ n ];
+		double[] width = new double[ n ];
+		int[] depth = new int[ n ];
+		int[] parent = new int[ n ];
+		boolean[] isLeft = new boolean[ n ];
+		int size = 0;
+		from[ size ] = 0;
+		to[ size ] = n - 1;
+		cut[ size ] = 0;
+		width[ size ] = sum;
+		depth[ size ] = 0;
+		parent[ size++ ] = FlatTree.NONE;
+		
+		int treeRoot = FlatTree.NONE;
+		cost = 0;
+		long probes = 0;
+		while ( size > 0 ) {
+			size--;
+			int i = from[ size ];
+			int j = to[ size ];
+			double middle = cut[ size ] + width[ size ] / 2;
+			
+			// k is the first key i + 1 .. j with s[k] >= middle, or j when there is none
+			int low = i + 1;
+			int high = j;
+			while ( low < high ) {
+				probes++;
+				int mid = ( low + high ) >>> 1;
+				if ( s[ mid ] >= middle ) {
+					high = mid;
+				} else {
+					low = mid + 1;
+				}
+			}
+			int k = low;
+			int node = k - 1;
+			left[ node ] = FlatTree.NONE;
+			right[ node ] = FlatTree.NONE;
+			if ( parent[ size ] == FlatTree.NONE ) {
+				treeRoot = node;
+			} else if ( isLeft[ size ] ) {
+				left[ parent[ size ] ] = node;
+			} else {
+				right[ parent[ size ] ] = node;
+			}
+			
+			int nodeDepth = depth[ size ];
+			double nodeCut = cut[ size ];
+			double half = width[ size ] / 2;
+			cost += p[ k ] * ( nodeDepth + 1 );
+			if ( k == j ) {
+				cost += q[ j ] * ( nodeDepth + 2 );
+			} else {
+				from[ size ] = k;
+				to[ size ] = j;
+				cut[ size ] = middle;
+				width[ size ] = half;
+				depth[ size ] = nodeDepth + 1;
+				parent[ size ] = node;
+				isLeft[ size++ ] = false;
+			}
+			if ( k == i + 1 ) {
+				cost += q[ i ] * ( nodeDepth + 2 );
+			} else {
+				from[ size ] = i;
+				to[ size ] = k - 1;
+				cut[ size ] = nodeCut;
+				width[ size ] = half;
+				depth[ size ] = nodeDepth + 1;
+				parent[ size ] = node;
+				isLeft[ size++ ] = true;
+			}
+		}
+		metrics.addCells( 0, probes );
+		return new FlatTree( keys, left, right, treeRoot );
 	}
 	
 	/**
-	 * getRoots is an accessor for the 2D array of roots
+	 * entropyBound works out the largest cost the bisection rule can give. with W the total weight and
+	 * H the entropy of the probabilities divided by W, every key is at depth log2( W / p[k] ) or less
+	 * and every dummy key at depth log2( W / q[g] ) + 1 or less ( Mehlhorn, 1975 ), so the cost is at most
+	 * W ( H + 1 ) + 2 ( q[0] + .. + q[n-1] ). the optimal cost is at least W H / log2( 3 ), so the
+	 * bisection tree is never far from optimal when H is large
 	 * 
-	 * @return int[][] roots which is the 2D array of roots
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param n - the number of keys
+	 * @return - double which is the bound on the cost
 	 */
-	public int[][] getRoots() {
-		return roots;
+	private static double entropyBound( double[] p, double[] q, int n ) {
+		double total = 0;
+		double misses = 0;
+		for ( int g = 0; g < n; g++ ) {
+			if ( g > 0 ) {
+				total += p[ g ];
+			}
+			total += q[ g ];
+			misses += q[ g ];
+		}
+		if ( total == 0 ) {
+			return 0;
+		}
+		double entropy = 0;
+		for ( int g = 0; g < n; g++ ) {
+			if ( g > 0 && p[ g ] > 0 ) {
+				entropy -= p[ g ] / total * Math.log( p[ g ] / total );
+			}
+			if ( q[ g ] > 0 ) {
+				entropy -= q[ g ] / total * Math.log( q[ g ] / total );
+			}
+		}
+		entropy /= Math.log( 2 );
+		return total * ( entropy + 1 ) + 2 * misses;
 	}
 	
 	/**
-	 * preOrder is the method that invokes preOrderUtil. preOrder
-	 * does not do the actual traversal, it just passes the root node
-	 * since a recursive traversal needs the root as a parameter.
+	 * heightLimited builds the tree with the lowest expected cost among the trees whose keys fit in
+	 * limit levels ( Garey, 1974 ). with E(h,i,j) the best cost of keys i .. j in at most h levels,
+	 * 
+	 *   E(h,i,j) = w[i][j] + min over r of E(h-1,i,r-1) + E(h-1,r+1,j), where E(h,i,i-1) = q[i-1]
+	 * 
+	 * and keys i .. j do not fit in h levels when there are more than 2^h - 1 of them, while E(h,i,j) is
+	 * E(h-1,i,j) when there are fewer than h. level h only reads level h - 1, so the costs are kept for
+	 * two levels at a time, but the roots are kept for every level to make the tree afterwards. Knuth's
+	 * bound does not hold under a limit, so every root is tried and this takes O(limit n^3) time and
+	 * O(limit n^2) memory. the optimal tree is found first with Knuth's engine in O(n^2), and when it
+	 * already fits it is the answer and no level is made. otherwise the levels are only made when their
+	 * roots fit in the largest heap the JVM may use
+	 * 
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param n - the number of keys
+	 * @param limit - the most levels of keys the tree may have
+	 * @return - FlatTree which is the tree
+	 * @throws IllegalArgumentException when the keys do not fit in limit levels, or the tables of the
+	 *         levels can not fit in the heap
 	 */
-	public void preOrder() {
-		preOrderUtil(root);
+	private FlatTree heightLimited( double[] p, double[] q, int n, int limit ) {
+		int size = n - 1;
+		// a full tree of h levels holds 2^h - 1 keys, so size keys need as many levels as size has bits
+		int needed = 32 - Integer.numberOfLeadingZeros( size );
+		if ( limit < needed ) {
+			throw new IllegalArgumentException( size + " keys need at least " + needed + " levels, the limit is " + limit );
+		}
+		OptimalBinarySearchTreeSolver solver = new OptimalBinarySearchTreeSolver( n );
+		unconstrainedCost = solver.solve( keys, p, q, n );
+		FlatTree optimal = solver.copyTree();
+		// no tree of size keys has more than size levels
+		if ( limit >= size || new LookupTree( optimal ).height() <= limit ) {
+			cost = unconstrainedCost;
+			return optimal;
+		}
+		
+		// limit is below size here. the roots of every level and the costs of two levels must fit
+		long triangle = PackedCostTable.cellCount( n );
+		long levelBytes = triangle * ( ( long ) limit * Integer.BYTES + 2 * Double.BYTES );
+		if ( !PackedCostTable.fits( n ) || levelBytes > Runtime.getRuntime().maxMemory() ) {
+			throw new IllegalArgumentException( "a height limit of " + limit + " for " + size + " keys needs about "
+					+ ( levelBytes >> 20 ) + " MB of tables, more than the heap can hold" );
+		}
+		PrefixSumWeights w = new PrefixSumWeights( p, q, n );
+		PackedCostTable previous = new PackedCostTable( n );
+		PackedCostTable current = new PackedCostTable( n );
+		PackedRootTable[] levelRoots = new PackedRootTable[ limit + 1 ];
+		for ( int i = 1; i < ( n + 1 ); i++ ) {
+			previous.set( i, i - 1, q[ i - 1 ] );
+			current.set( i, i - 1, q[ i - 1 ] );
+			for ( int j = i; j < n; j++ ) {
+				// no key fits in 0 levels
+				previous.set( i, j, Double.POSITIVE_INFINITY );
+			}
+		}
+		for ( int h = 1; h < ( limit + 1 ); h++ ) {
+			PackedRootTable roots = new PackedRootTable( n );
+			levelRoots[ h ] = roots;
+			long fits = ( 1L << Math.min( h, 62 ) ) - 1;
+			long cells = 0;
+			long candidates = 0;
+			for ( int l = 1; l < n; l++ ) {
+				for ( int i = 1; i < ( n - l + 1 ); i++ ) {
+					int j = i + l - 1;
+					if ( l > fits ) {
+						current.set( i, j, Double.POSITIVE_INFINITY );
+					} else if ( l < h ) {
+						current.set( i, j, previous.get( i, j ) );
+						roots.set( i, j, levelRoots[ h - 1 ].get( i, j ) );
+					} else {
+						double weight = w.get( i, j );
+						int bestRoot = previous.bestRoot( i, j, i, j, weight );
+						current.set( i, j, previous.get( i, ( bestRoot - 1 ) ) + previous.get( ( bestRoot + 1 ), j ) + weight );
+						roots.set( i, j, bestRoot );
+						cells++;
+						candidates += l;
+					}
+				}
+			}
+			metrics.addCells( cells, candidates );
+			PackedCostTable swap = previous;
+			previous = current;
+			current = swap;
+		}
+		cost = previous.get( 1, n - 1 );
+		metrics.setTableBytes( 2 * previous.getBytes() + w.getBytes() + limit * levelRoots[ 1 ].getBytes() );
+		
+		// each entry is a range of keys, the levels it may use and the node that its root hangs from
+		int[] left = new int[ size ];
+		int[] right = new int[ size ];
+		int[] from = new int[ limit + 1 ];
+		int[] to = new int[ limit + 1 ];
+		int[] levels = new int[ limit + 1 ];
+		int[] parent = new int[ limit + 1 ];
+		boolean[] isLeft = new boolean[ limit + 1 ];
+		int top = 0;
+		from[ top ] = 1;
+		to[ top ] = n - 1;
+		levels[ top ] = limit;
+		parent[ top++ ] = FlatTree.NONE;
+		int treeRoot = FlatTree.NONE;
+		while ( top > 0 ) {
+			top--;
+			int i = from[ top ];
+			int j = to[ top ];
+			int h = levels[ top ];
+			int r = levelRoots[ h ].get( i, j );
+			int node = r - 1;
+			left[ node ] = FlatTree.NONE;
+			right[ node ] = FlatTree.NONE;
+			if ( parent[ top ] == FlatTree.NONE ) {
+				treeRoot = node;
+			} else if ( isLeft[ top ] ) {
+				left[ parent[ top ] ] = node;
+			} else {
+				right[ parent[ top ] ] = node;
+			}
+			if ( r < j ) {
+				from[ top ] = r + 1;
+				to[ top ] = j;
+				levels[ top ] = h - 1;
+				parent[ top ] = node;
+				isLeft[ top++ ] = false;
+			}
+			if ( r > i ) {
+				from[ top ] = i;
+				to[ top ] = r - 1;
+				levels[ top ] = h - 1;
+				parent[ top ] = node;
+				isLeft[ top++ ] = true;
+			}
+		}
+		return new FlatTree( keys, left, right, treeRoot );
 	}
 	
 	/**
-	 * PreOrderUtil is the method that actually does the preorder traversal. It
-	 * is called directly by preOrder to do the work, since a recursive preorder
-	 * traversal needs a parameter.
+	 * makeNodeTree makes a new tree of Node objects from the roots table with makeTree, and leaves
+	 * this tree as it is. it lets OptimalBinarySearchTreeBenchmark time makeTree on its own
 	 * 
-	 * @param treeNode - the current root node
+	 * @return - Node which is the root of the new tree, or null when there are no keys
+	 * @throws IllegalStateException when the tree was built by an engine without tables, see Engine
 	 */
-	private void preOrderUtil( Node treeNode ) {
-		if (treeNode != null) {
-			System.out.println( "\nCurrent Node is " + treeNode.getKey() 
-								+ "\n-----------------------------------------------\n");
-			if ( treeNode.getLeftChild() != null ) {
-				System.out.printf( "\tleft child of %d is %d\n", treeNode.getKey(), treeNode.getLeftChild().getKey() );
+	Node makeNodeTree() {
+		if ( roots == null ) {
+			throw new IllegalStateException( "the " + metrics.getEngine() + " engine keeps no roots table" );
+		}
+		return makeTree( 1, roots.getSize() - 1 );
+	}
+	
+	/**
+	 * makeTree creates the optimal binary search tree after the calculations from OptimalBST have been performed.
+	 * the subtrees that still have to be made are kept on an explicit stack instead of the call stack, so
+	 * the depth of the tree is not limited by the thread's stack size. the stack never holds more than one
+	 * subtree per level of the tree
+	 * 
+	 * @param i - index i
+	 * @param j - index j
+	 * @return - Node which is the root of the tree for keys i .. j, or null when i > j
+	 */
+	private Node makeTree( int i, int j ) {
+		if ( i > j ) {
+			return null;
+		}
+		
+		// each entry is a range of keys and the node that the root of the range hangs from
+		int[] from = new int[ j - i + 2 ];
+		int[] to = new int[ j - i + 2 ];
+		Node[] parent = new Node[ j - i + 2 ];
+		boolean[] isLeft = new boolean[ j - i + 2 ];
+		int size = 0;
+		from[ size ] = i;
+		to[ size++ ] = j;
+		
+		Node treeRoot = null;
+		while ( size > 0 ) {
+			size--;
+			int r = roots.get( from[ size ], to[ size ] );
+			Node node = new Node( keys[ r - 1 ] );
+			if ( parent[ size ] == null ) {
+				treeRoot = node;
+			} else if ( isLeft[ size ] ) {
+				parent[ size ].setLeftChild( node );
 			} else {
-				System.out.printf( "\tleft child of %d is NULL\n", treeNode.getKey());
+				parent[ size ].setRightChild( node );
 			}
 			
-			if ( treeNode.getRightChild() != null ) {
-				System.out.printf( "\tright child of %d is %d\n", treeNode.getKey(), treeNode.getRightChild().getKey() );
-			} else {
-				System.out.printf( "\tright child of %d is NULL\n", treeNode.getKey());
+			int first = from[ size ];
+			int last = to[ size ];
+			parent[ size ] = null;
+			if ( r + 1 <= last ) {
+				from[ size ] = r + 1;
+				to[ size ] = last;
+				parent[ size ] = node;
+				isLeft[ size++ ] = false;
+			}
+			if ( first <= r - 1 ) {
+				from[ size ] = first;
+				to[ size ] = r - 1;
+				parent[ size ] = node;
+				isLeft[ size++ ] = true;
 			}
-			preOrderUtil( treeNode.getLeftChild() );
-			preOrderUtil( treeNode.getRightChild() );
 		}
+		return treeRoot;
 	}
 	
 	/**
-	 * preOrder is the method that invokes preOrderUtil. preOrder
-	 * does not do the actual traversal, it just passes the root node
-	 * since a recursive traversal needs the root as a parameter.
+	 * update calculates the tree again after a few probabilities changed. a cell [i][j] only changes
+	 * when its keys i .. j cover a changed p[k] ( i <= k <= j ) or a changed q[k] ( i - 1 <= k <= j ),
+	 * since every other cell only reads cells that did not change either, so only those cells are
+	 * calculated again. the subtrees of the Node tree whose cells did not change are kept, and new
+	 * nodes are only made above them. the FlatTree and the LookupTree are made again, which takes O(n)
+	 * 
+	 * the result is the same as a new build with the same options, except with prefix sum weights. a
+	 * change moves every prefix sum after it, so a new build works out the weights right of the change
+	 * with different rounding, while update keeps those cells. the costs are then equal up to rounding
+	 * in the last bits, and the roots are the same unless two of them tie that closely
+	 * 
+	 * @param p - array of doubles with every probability that Pi is searched for, including the changed ones
+	 * @param q - array of doubles with every probability that Qi is searched for, including the changed ones
+	 * @param changedP - the indexes k of every p[k] that changed
+	 * @param changedQ - the indexes k of every q[k] that changed
+	 * @throws IllegalStateException when the tree was built by an engine without tables, see Engine
+	 * @throws IllegalArgumentException when the probabilities are not valid for the keys of the tree
+	 *         ( see the constructor ), or an index in changedP or changedQ is not a key or dummy key.
+	 *         the tree is left as it was
 	 */
-	public void preOrderToFile( PrintWriter out ) {
-		preOrderToFileUtil( out, root );
+	public void update( double[] p, double[] q, int[] changedP, int[] changedQ ) {
+		if ( roots == null ) {
+			throw new IllegalStateException( "the " + metrics.getEngine() + " engine keeps no tables to update" );
+		}
+		int n = roots.getSize();
+		long phaseStart = System.nanoTime();
+		validate( keys, p, q, n );
+		
+		// firstChanged[i] is the smallest j for which cell [i][j] changes, or n when none of row i does.
+		// a change covers the cells with i <= hi and j >= lo, so it is stored at hi and carried down
+		int[] firstChanged = new int[ n + 2 ];
+		Arrays.fill( firstChanged, n );
+		for ( int k : changedP ) {
+			if ( k < 1 || k >= n ) {
+				throw new IllegalArgumentException( "p[" + k + "] is not a key" );
+			}
+			firstChanged[ k ] = Math.min( firstChanged[ k ], k );
+		}
+		for ( int k : changedQ ) {
+			if ( k < 0 || k >= n ) {
+				throw new IllegalArgumentException( "q[" + k + "] is not a dummy key" );
+			}
+			firstChanged[ k + 1 ] = Math.min( firstChanged[ k + 1 ], k );
+		}
+		for ( int i = n; i >= 1; i-- ) {
+			firstChanged[ i ] = Math.min( firstChanged[ i ], firstChanged[ i + 1 ] );
+		}
+		metrics = new BuildMetrics( metrics.getEngine() );
+		metrics.setTableBytes( expectedCosts.getBytes() + weights.getBytes() + roots.getBytes() );
+		phaseStart = endPhase( Phase.VALIDATION, phaseStart );
+		
+		// before the roots change, remember the highest nodes of the old tree whose cells stay the same
+		Node[] kept = new Node[ n ];
+		int[] keptFrom = new int[ n ];
+		int[] keptTo = new int[ n ];
+		if ( treeForm == TreeForm.NODES && root != null ) {
+			ArrayDeque<Node> nodes = new ArrayDeque<Node>();
+			ArrayDeque<int[]> ranges = new ArrayDeque<int[]>();
+			nodes.push( root );
+			ranges.push( new int[] { 1, n - 1 } );
+			while ( !nodes.isEmpty() ) {
+				Node node = nodes.pop();
+				int[] range = ranges.pop();
+				int r = roots.get( range[ 0 ], range[ 1 ] );
+				if ( range[ 1 ] < firstChanged[ range[ 0 ] ] ) {
+					kept[ r - 1 ] = node;
+					keptFrom[ r - 1 ] = range[ 0 ];
+					keptTo[ r - 1 ] = range[ 1 ];
+					continue;
+				}
+				if ( node.getLeftChild() != null ) {
+					nodes.push( node.getLeftChild() );
+					ranges.push( new int[] { range[ 0 ], r - 1 } );
+				}
+				if ( node.getRightChild() != null ) {
+					nodes.push( node.getRightChild() );
+					ranges.push( new int[] { r + 1, range[ 1 ] } );
+				}
+			}
+		}
+		
+		startTimer();
+		if ( prefixSumWeights ) {
+			( ( PrefixSumWeights ) weights ).update( p, q );
+		}
+		// going up the rows and along each row, a cell is calculated after [i][r-1] and [r+1][j]
+		for ( int i = n; i >= 1; i-- ) {
+			int j = Math.max( firstChanged[ i ], i - 1 );
+			if ( j == i - 1 ) {
+				expectedCosts.set( i, i - 1, q[ i - 1 ] );
+				if ( !prefixSumWeights ) {
+					weights.set( i, i - 1, q[ i - 1 ] );
+				}
+				j++;
+			}
+			long candidates = 0;
+			int cells = n - j;
+			for ( ; j < n; j++ ) {
+				candidates += OptimalCell( p, q, i, j, knuthBound );
+			}
+			metrics.addCells( Math.max( 0, cells ), candidates );
+		}
+		endTimer();
+		cost = expectedCosts.get( 1, n - 1 );
+		costBound = cost;
+		unconstrainedCost = cost;
+		phaseStart = endPhase( Phase.SOLVE, phaseStart );
+		
+		FlatTree shape = FlatTree.fromRoots( roots, this.keys, n );
+		this.lookupTree = new LookupTree( shape );
+		if ( treeForm == TreeForm.FLAT ) {
+			this.flatTree = shape;
+		} else {
+			this.root = remakeTree( n, firstChanged, kept, keptFrom, keptTo );
+		}
+		finishTree( p, q, n, phaseStart );
 	}
 	
 	/**
-	 * PreOrderUtil is the method that actually does the preorder traversal. It
-	 * is called directly by preOrder to do the work, since a recursive preorder
-	 * traversal needs a parameter.
+	 * remakeTree makes the Node tree for keys 1 .. n - 1 again after update. a range whose cell did
+	 * not change is the same subtree as before, so the old nodes are used when the old tree had
+	 * that exact range, and makeTree is used when it did not
 	 * 
-	 * @param treeNode - the current root node
+	 * @param n - the number of keys
+	 * @param firstChanged - the smallest j for which cell [i][j] changed, for every row i
+	 * @param kept - the old node with the key at every position whose cell did not change, or null
+	 * @param keptFrom - the first key of the range of every kept node
+	 * @param keptTo - the last key of the range of every kept node
+	 * @return - Node which is the root of the tree, or null when there are no keys
 	 */
-	private void preOrderToFileUtil( PrintWriter out, Node treeNode ) {
-		if (treeNode != null) {
-			out.println( "\nCurrent Node is " + treeNode.getKey() 
-								+ "\n-----------------------------------------------\n");
-			if ( treeNode.getLeftChild() != null ) {
-				out.printf( "\tleft child of %d is %d\n", treeNode.getKey(), treeNode.getLeftChild().getKey() );
+	private Node remakeTree( int n, int[] firstChanged, Node[] kept, int[] keptFrom, int[] keptTo ) {
+		if ( n < 2 ) {
+			return null;
+		}
+		int[] from = new int[ n ];
+		int[] to = new int[ n ];
+		Node[] parent = new Node[ n ];
+		boolean[] isLeft = new boolean[ n ];
+		int size = 0;
+		from[ size ] = 1;
+		to[ size++ ] = n - 1;
+		
+		Node treeRoot = null;
+		while ( size > 0 ) {
+			size--;
+			int first = from[ size ];
+			int last = to[ size ];
+			int r = roots.get( first, last );
+			boolean changed = last >= firstChanged[ first ];
+			Node node;
+			if ( changed ) {
+				node = new Node( keys[ r - 1 ] );
+			} else if ( kept[ r - 1 ] != null && keptFrom[ r - 1 ] == first && keptTo[ r - 1 ] == last ) {
+				node = kept[ r - 1 ];
 			} else {
-				out.printf( "\tleft child of %d is NULL\n", treeNode.getKey());
+				node = makeTree( first, last );
 			}
-			
-			if ( treeNode.getRightChild() != null ) {
-				out.printf( "\tright child of %d is %d\n", treeNode.getKey(), treeNode.getRightChild().getKey() );
+			if ( parent[ size ] == null ) {
+				treeRoot = node;
+			} else if ( isLeft[ size ] ) {
+				parent[ size ].setLeftChild( node );
 			} else {
-				out.printf( "\tright child of %d is NULL\n", treeNode.getKey());
+				parent[ size ].setRightChild( node );
+			}
+			
+			parent[ size ] = null;
+			if ( !changed ) {
+				continue;
+			}
+			if ( r + 1 <= last ) {
+				from[ size ] = r + 1;
+				to[ size ] = last;
+				parent[ size ] = node;
+				isLeft[ size++ ] = false;
+			}
+			if ( first <= r - 1 ) {
+				from[ size ] = first;
+				to[ size ] = r - 1;
+				parent[ size ] = node;
+				isLeft[ size++ ] = true;
 			}
-			preOrderToFileUtil( out, treeNode.getLeftChild() );
-			preOrderToFileUtil( out, treeNode.getRightChild() );
 		}
+		return treeRoot;
 	}
 	
 	/**
-	 * inOrder is the method that invokes inOrderUtil. inOrder
-	 * does not do the actual traversal, it just passes the root node
-	 * since a recursive traversal needs the root as a parameter.
+	 * getRoot returns the root of the tree when it is made out of Node objects
+	 * 
+	 * @return - Node which is the root, or null when the tree is empty or stored as a FlatTree
 	 */
-	public void inOrderToFile( PrintWriter out ) {
-		inOrderToFileUtil( out, root );
+	public Node getRoot() {
+		return root;
 	}
 	
 	/**
-	 * inOrderUtil is the method that actually does the inorder traversal. It
-	 * is called directly by inorder to do the work, since a recursive inorder
-	 * traversal needs a parameter.
+	 * getMetrics returns the times and counts of the build, or of the last update
 	 * 
-	 * @param treeNode - the current root node
+	 * @return - BuildMetrics of the build
 	 */
-	private void inOrderToFileUtil( PrintWriter out, Node treeNode ) {
-
-		if (treeNode != null) {
-
-			inOrderToFileUtil( out, treeNode.getLeftChild() );
+	public BuildMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * getFlatTree returns the tree when it is stored in arrays
+	 * 
+	 * @return - FlatTree which is the tree, or null when the tree is made out of Node objects
+	 */
+	public FlatTree getFlatTree() {
+		return flatTree;
+	}
+	
+	/**
+	 * search looks for a key in the tree, see LookupTree.search
+	 * 
+	 * @param key - the key to look for
+	 * @return - the position of the key in getKeys() when it is found, otherwise -( gap ) - 1,
+	 * where gap is the number of the dummy key the search ended in
+	 */
+	public int search( int key ) {
+		return lookupTree.search( key );
+	}
+	
+	/**
+	 * getLookupTree returns the copy of the tree that is laid out for searching
+	 * 
+	 * @return - LookupTree of the tree
+	 */
+	public LookupTree getLookupTree() {
+		return lookupTree;
+	}
+	
+	/**
+	 * getCost returns the expected cost of the whole tree, which is expectedCosts[1][n-1] for the
+	 * matrix engines
+	 * 
+	 * @return - double which is the expected cost of a search in the tree
+	 */
+	public double getCost() {
+		return cost;
+	}
+	
+	/**
+	 * getCostBound returns the largest cost the engine could have given for these probabilities.
+	 * for the APPROXIMATE engine it is the bound from entropyBound, for the other engines, which
+	 * find the optimal tree, it is the cost itself
+	 * 
+	 * @return - double which is the bound on the expected cost
+	 */
+	public double getCostBound() {
+		return costBound;
+	}
+	
+	/**
+	 * getUnconstrainedCost returns the expected cost of the optimal tree without a limit on its
+	 * height. for the HEIGHT_LIMITED engine it is worked out with Knuth's engine, for the other
+	 * engines it is getCost()
+	 * 
+	 * @return - double which is the expected cost without a height limit
+	 */
+	public double getUnconstrainedCost() {
+		return unconstrainedCost;
+	}
+	
+	/**
+	 * getHeightPenalty returns how much the expected cost grew because of the height limit of the
+	 * HEIGHT_LIMITED engine, 0 when the optimal tree already fits and for the other engines
+	 * 
+	 * @return - double which is getCost() - getUnconstrainedCost()
+	 */
+	public double getHeightPenalty() {
+		return cost - unconstrainedCost;
+	}
 
-			out.println( "\nCurrent Node is " + treeNode.getKey() 
-								+ "\n-----------------------------------------------\n");
-			if ( treeNode.getLeftChild() != null ) {
-				out.printf( "\tleft child of %d is %d\n", treeNode.getKey(), treeNode.getLeftChild().getKey() );
-			} else {
-				out.printf( "\tleft child of %d is NULL\n", treeNode.getKey());
+	public int[] getKeys() {
+		return keys;
+	}
+	
+	/**
+	 * getExpectedCosts returns a view of the table of best expected costs for the OBST
+	 * @return - CostTable that contains the best expected costs for the OBST, or null
+	 * when an engine without tables was used
+	 * 
+	 */
+	public CostTable getExpectedCosts() {
+		return expectedCosts;
+	}
+	
+	/**
+	 * getWeights returns a view of the table of one time calculated weights. when the weights
+	 * are prefix sums, every weight is worked out when it is read
+	 * 
+	 * @return - CostTable that contains the weights, or null when an engine without tables was used
+	 */
+	public CostTable getWeights() {
+		return weights;
+	}
+	
+	/**
+	 * getRoots is an accessor for the table of roots
+	 * 
+	 * @return RootTable roots which is the table of roots, or null when an engine without tables was used
+	 */
+	public RootTable getRoots() {
+		return roots;
+	}
+	
+	/**
+	 * preOrder prints the preorder traversal of the tree to standard out
+	 */
+	public void preOrder() {
+		PrintWriter out = new PrintWriter( System.out );
+		preOrderToFile( out );
+		out.flush();
+	}
+	
+	/**
+	 * preOrderToFile prints the preorder traversal of the tree to a file
+	 * 
+	 * @param out - PrintWriter to print to
+	 */
+	public void preOrderToFile( PrintWriter out ) {
+		long phaseStart = System.nanoTime();
+		if ( flatTree != null ) {
+			flatTree.preOrder( out );
+		} else {
+			preOrderUtil( out, root );
+		}
+		endPhase( Phase.OUTPUT, phaseStart );
+	}
+	
+	/**
+	 * preOrderUtil is the method that actually does the preorder traversal. the nodes that still
+	 * have to be visited are kept on an explicit stack, so a deep tree can not overflow the call stack
+	 * 
+	 * @param out - PrintWriter to print to
+	 * @param treeNode - the root node
+	 */
+	private void preOrderUtil( PrintWriter out, Node treeNode ) {
+		ArrayDeque<Node> stack = new ArrayDeque<Node>();
+		if ( treeNode != null ) {
+			stack.push( treeNode );
+		}
+		while ( !stack.isEmpty() ) {
+			Node node = stack.pop();
+			printNode( out, node );
+			if ( node.getRightChild() != null ) {
+				stack.push( node.getRightChild() );
 			}
-			
-			if ( treeNode.getRightChild() != null ) {
-				out.printf( "\tright child of %d is %d\n", treeNode.getKey(), treeNode.getRightChild().getKey() );
-			} else {
-				out.printf( "\tright child of %d is NULL\n", treeNode.getKey());
+			if ( node.getLeftChild() != null ) {
+				stack.push( node.getLeftChild() );
 			}
-
-			inOrderToFileUtil( out, treeNode.getRightChild() );
 		}
 	}
-
+	
 	/**
-	 * preOrder is the method that invokes preOrderUtil. preOrder
-	 * does not do the actual traversal, it just passes the root node
-	 * since a recursive traversal needs the root as a parameter.
+	 * inOrder prints the inorder traversal of the tree to standard out
 	 */
 	public void inOrder() {
-		inOrderUtil(root);
+		PrintWriter out = new PrintWriter( System.out );
+		inOrderToFile( out );
+		out.flush();
 	}
 	
 	/**
-	 * PreOrderUtil is the method that actually does the preorder traversal. It
-	 * is called directly by preOrder to do the work, since a recursive preorder
-	 * traversal needs a parameter.
+	 * inOrderToFile prints the inorder traversal of the tree to a file
 	 * 
-	 * @param treeNode - the current root node
+	 * @param out - PrintWriter to print to
 	 */
-	private void inOrderUtil( Node treeNode ) {
-
-		if (treeNode != null) {
-
-			inOrderUtil( treeNode.getLeftChild() );
-
-			System.out.println( "\nCurrent Node is " + treeNode.getKey() 
-								+ "\n-----------------------------------------------\n");
-
-			if ( treeNode.getLeftChild() != null ) {
-				System.out.printf( "\tleft child of %d is %d\n", treeNode.getKey(), treeNode.getLeftChild().getKey() );
-			} else {
-				System.out.printf( "\tleft child of %d is NULL\n", treeNode.getKey());
-			}
-			
-			if ( treeNode.getRightChild() != null ) {
-				System.out.printf( "\tright child of %d is %d\n", treeNode.getKey(), treeNode.getRightChild().getKey() );
-			} else {
-				System.out.printf( "\tright child of %d is NULL\n", treeNode.getKey());
+	public void inOrderToFile( PrintWriter out ) {
+		long phaseStart = System.nanoTime();
+		if ( flatTree != null ) {
+			flatTree.inOrder( out );
+		} else {
+			inOrderUtil( out, root );
+		}
+		endPhase( Phase.OUTPUT, phaseStart );
+	}
+	
+	/**
+	 * inOrderUtil is the method that actually does the inorder traversal. the nodes whose left
+	 * subtree is being visited are kept on an explicit stack, so a deep tree can not overflow the
+	 * call stack
+	 * 
+	 * @param out - PrintWriter to print to
+	 * @param treeNode - the root node
+	 */
+	private void inOrderUtil( PrintWriter out, Node treeNode ) {
+		ArrayDeque<Node> stack = new ArrayDeque<Node>();
+		Node node = treeNode;
+		while ( node != null || !stack.isEmpty() ) {
+			while ( node != null ) {
+				stack.push( node );
+				node = node.getLeftChild();
 			}
-
-			inOrderUtil( treeNode.getRightChild() );
+			node = stack.pop();
+			printNode( out, node );
+			node = node.getRightChild();
+		}
+	}
+	
+	/**
+	 * printNode prints a node and its children, this is what the traversals print for every node
+	 * 
+	 * @param out - PrintWriter to print to
+	 * @param treeNode - the node to print
+	 */
+	private void printNode( PrintWriter out, Node treeNode ) {
+		Node left = treeNode.getLeftChild();
+		Node right = treeNode.getRightChild();
+		printNode( out, treeNode.getKey(), left != null, left != null ? left.getKey() : 0,
+				right != null, right != null ? right.getKey() : 0 );
+	}
+	
+	/**
+	 * printNode prints a node and its children from their keys, so FlatTree prints the same way
+	 * 
+	 * @param out - PrintWriter to print to
+	 * @param key - the key of the node
+	 * @param hasLeft - true when the node has a left child
+	 * @param leftKey - the key of the left child
+	 * @param hasRight - true when the node has a right child
+	 * @param rightKey - the key of the right child
+	 */
+	static void printNode( PrintWriter out, int key, boolean hasLeft, int leftKey, boolean hasRight, int rightKey ) {
+		out.println( "\nCurrent Node is " + key 
+							+ "\n-----------------------------------------------\n");
+		if ( hasLeft ) {
+			out.printf( "\tleft child of %d is %d\n", key, leftKey );
+		} else {
+			out.printf( "\tleft child of %d is NULL\n", key);
+		}
+		
+		if ( hasRight ) {
+			out.printf( "\tright child of %d is %d\n", key, rightKey );
+		} else {
+			out.printf( "\tright child of %d is NULL\n", key);
 		}
 	}
 
 	/**
-	 * getRuntime calculates the runtime of QuickSort (& randomized QuickSort)
-	 * @return Long that is the runtime of QUickSort in nanoseconds
+	 * getRuntime returns the time the engine took to calculate the tree, measured once with no
+	 * warmup. see OptimalBinarySearchTreeBenchmark for repeated measurements
+	 * @return Long that is the runtime of the engine in nanoseconds
 	 */
 	public Long getRuntime() {
 		return endTime - startTime;
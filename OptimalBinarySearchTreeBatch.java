@@ -0,0 +1,250 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * OptimalBinarySearchTreeBatch solves many trees without asking anything. it takes a directory of
+ * frequency files ( see FrequencyFile ), or a manifest that lists them one path per line, and solves
+ * them at the same time. the files are read on a pool of threads that grows as needed, because a read
+ * mostly waits for the disk, and the trees are solved on a fixed pool with one thread per processor.
+ * at most IN_FLIGHT_PER_THREAD instances per solving thread are read or solved at once, so the memory
+ * stays bounded however many files there are. the results file gets a line for every instance with its
+ * timings, in the order the instances were listed, and the throughput of the whole batch is printed.
+ *
+ * usage: java OptimalBinarySearchTreeTest directory | manifest [ results file [ solving threads ] ]
+ *        for example java OptimalBinarySearchTreeTest tenants/ nightly.txt 8
+ *
+ * in a manifest, blank lines and lines that start with # are skipped, and relative paths are taken
+ * from the directory of the manifest. in a directory, every regular file is an instance, in the order
+ * of their names.
+ *
+ * @category Dynamic Programming
+ */
+public class OptimalBinarySearchTreeBatch {
+
+	private static final String RESULTS_FILE = "OptimalBinarySearchTreeBatch.txt";
+	// the instances each solving thread may have read or solving at once
+	private static final int IN_FLIGHT_PER_THREAD = 4;
+
+	public static void main( String[] args ) {
+		if ( args.length < 1 || args.length > 3 ) {
+			System.out.println( "usage: java OptimalBinarySearchTreeTest directory | manifest [ results file [ solving threads ] ]" );
+			return;
+		}
+
+		List<Path> files;
+		Path results;
+		int threads = Runtime.getRuntime().availableProcessors();
+		try {
+			files = list( Paths.get( args[ 0 ] ) );
+			results = Paths.get( args.length > 1 ? args[ 1 ] : RESULTS_FILE );
+			if ( args.length > 2 ) {
+				threads = Integer.parseInt( args[ 2 ] );
+				if ( threads < 1 ) throw new NumberFormatException();
+			}
+		}
+		catch ( IOException | InvalidPathException e ) {
+			System.out.println( "\nThe problem files could not be listed: " + e.getMessage() );
+			return;
+		}
+		catch ( NumberFormatException nfe ) {
+			System.out.println( "\nThe number of solving threads must be an integer of at least 1" );
+			return;
+		}
+
+		long start = System.nanoTime();
+		List<Instance> instances = solve( files, threads );
+		long elapsed = System.nanoTime() - start;
+
+		try {
+			write( results, instances );
+		}
+		catch ( IOException e ) {
+			System.out.println( "\nThe results could not be written to " + results + ": " + e.getMessage() );
+		}
+		summarize( instances, elapsed, threads, results );
+	}
+
+	/**
+	 * list finds the problem files of a directory or a manifest
+	 *
+	 * @param source - a directory of frequency files, or a manifest of their paths
+	 * @return - list of the problem files in the order they are solved
+	 * @throws IOException - when the directory or manifest can not be read
+	 */
+	private static List<Path> list( Path source ) throws IOException {
+		List<Path> files = new ArrayList<>();
+		if ( Files.isDirectory( source ) ) {
+			try ( DirectoryStream<Path> entries = Files.newDirectoryStream( source ) ) {
+				for ( Path entry : entries ) {
+					if ( Files.isRegularFile( entry ) ) {
+						files.add( entry );
+					}
+				}
+			}
+			Collections.sort( files );
+		} else {
+			Path directory = source.toAbsolutePath().getParent();
+			for ( String line : Files.readAllLines( source ) ) {
+				line = line.trim();
+				if ( !line.isEmpty() && !line.startsWith( "#" ) ) {
+					files.add( directory.resolve( line ) );
+				}
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * solve reads and solves every problem file. a file that can not be read or solved is recorded
+	 * with its error, the others are still solved. every solving thread solves into the tables of its
+	 * own OptimalBinarySearchTreeSolver, so the tables are only made once per thread. the counts of the
+	 * files are solved as whole numbers, so they are never divided and the costs are exact
+	 *
+	 * @param files - the problem files
+	 * @param threads - the number of threads that solve trees
+	 * @return - list of the instances, in the order of the files
+	 */
+	private static List<Instance> solve( List<Path> files, int threads ) {
+		ExecutorService readers = Executors.newCachedThreadPool();
+		ExecutorService solvers = Executors.newFixedThreadPool( threads );
+		Semaphore inFlight = new Semaphore( IN_FLIGHT_PER_THREAD * threads );
+		List<Instance> instances = new ArrayList<>( files.size() );
+		List<CompletableFuture<Void>> done = new ArrayList<>( files.size() );
+		try {
+			for ( Path file : files ) {
+				Instance instance = new Instance( file );
+				instances.add( instance );
+				inFlight.acquireUninterruptibly();
+				done.add( CompletableFuture.runAsync( instance::read, readers )
+						.thenRunAsync( instance::solve, solvers )
+						.whenComplete( ( nothing, error ) -> inFlight.release() ) );
+			}
+			CompletableFuture.allOf( done.toArray( new CompletableFuture<?>[ 0 ] ) ).join();
+		} finally {
+			readers.shutdown();
+			solvers.shutdown();
+		}
+		return instances;
+	}
+
+	/**
+	 * write saves a line for every instance
+	 *
+	 * @param results - the file to write, it is replaced when it exists
+	 * @param instances - the solved instances
+	 * @throws IOException - when the file can not be written
+	 */
+	private static void write( Path results, List<Instance> instances ) throws IOException {
+		try ( PrintWriter out = new PrintWriter( Files.newBufferedWriter( results ) ) ) {
+			out.printf( "%-40s %10s %12s %12s %12s  %s%n", "file", "keys", "cost", "read ms", "solve ms", "status" );
+			for ( Instance instance : instances ) {
+				if ( instance.error != null ) {
+					out.printf( "%-40s %10s %12s %12.3f %12.3f  failed: %s%n", instance.file, "-", "-",
+							instance.readNanos / 1e6, instance.solveNanos / 1e6, instance.error );
+				} else {
+					out.printf( "%-40s %10d %12.6f %12.3f %12.3f  ok%n", instance.file, instance.keys, instance.cost,
+							instance.readNanos / 1e6, instance.solveNanos / 1e6 );
+				}
+			}
+		}
+	}
+
+	/**
+	 * summarize prints the throughput of the batch
+	 *
+	 * @param instances - the solved instances
+	 * @param elapsed - nanoseconds from the first read to the last solve
+	 * @param threads - the number of threads that solved trees
+	 * @param results - the file the results were written to
+	 */
+	private static void summarize( List<Instance> instances, long elapsed, int threads, Path results ) {
+		int failed = 0;
+		long keys = 0;
+		long readNanos = 0;
+		long solveNanos = 0;
+		for ( Instance instance : instances ) {
+			if ( instance.error != null ) {
+				failed++;
+			} else {
+				keys += instance.keys;
+			}
+			readNanos += instance.readNanos;
+			solveNanos += instance.solveNanos;
+		}
+		double seconds = elapsed / 1e9;
+		int solved = instances.size() - failed;
+
+		System.out.printf( "\nOptimal Binary Search Tree Batch\n--------------------------------------------------------------\n" );
+		System.out.printf( "instances          %d solved, %d failed\n", solved, failed );
+		System.out.printf( "solving threads    %d\n", threads );
+		System.out.printf( "wall time          %.3f s\n", seconds );
+		System.out.printf( "throughput         %.1f instances/s, %.0f keys/s\n",
+				seconds > 0 ? solved / seconds : 0, seconds > 0 ? keys / seconds : 0 );
+		System.out.printf( "time reading       %.3f s over all instances\n", readNanos / 1e9 );
+		System.out.printf( "time solving       %.3f s over all instances\n", solveNanos / 1e9 );
+		System.out.printf( "results            %s\n", results );
+	}
+
+	/**
+	 * Instance is one problem file on its way through the batch. read and solve run on different
+	 * threads one after the other, and the results are only read after both are done
+	 */
+	private static class Instance {
+
+		private final Path file;
+		// the counts of the file, kept from reading until solving
+		private FrequencyFile frequencies;
+		private int keys;
+		private double cost;
+		private long readNanos;
+		private long solveNanos;
+		// why the instance could not be solved, or null
+		private String error;
+
+		Instance( Path file ) {
+			this.file = file;
+		}
+
+		void read() {
+			long start = System.nanoTime();
+			try {
+				frequencies = FrequencyFile.readCounts( file );
+			}
+			catch ( Throwable e ) {
+				// even an Error only concerns this instance, it must not stop the rest of the batch
+				error = e.toString();
+			}
+			readNanos = System.nanoTime() - start;
+		}
+
+		void solve() {
+			if ( frequencies == null ) {
+				return;
+			}
+			long start = System.nanoTime();
+			try {
+				OptimalBinarySearchTreeSolver solver = OptimalBinarySearchTreeSolver.forThread();
+				solver.solveCounts( frequencies.getKeys(), frequencies.getHits(), frequencies.getMisses(), frequencies.getN() );
+				cost = solver.getCost();
+				keys = frequencies.getKeys().length;
+			}
+			catch ( Throwable e ) {
+				error = e.toString();
+			}
+			frequencies = null;
+			solveNanos = System.nanoTime() - start;
+		}
+	}
+}
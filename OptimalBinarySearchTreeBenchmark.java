@@ -0,0 +1,253 @@
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * OptimalBinarySearchTreeBenchmark times the parts of OptimalBinarySearchTree over several sizes and
+ * distributions of probabilities. every benchmark is run a number of times to warm up the JIT before
+ * it is timed, then it is timed a number of times and the mean, standard deviation and fastest run
+ * are printed, together with the bytes allocated per run. the benchmarks are
+ *
+ *   solve      the constructor with the KNUTH and APPROXIMATE engines ( OptimalBST or bisection )
+ *   makeTree   OptimalBinarySearchTree.makeTree, turning the roots table into a tree of Node objects
+ *   inOrder    printing the inorder traversal to a writer that throws the text away
+ *   lookup     LookupTree.search for keys drawn from the same distribution, timed per search
+ *   multiway   MultiwaySearchTree.search for the same keys, up to MULTIWAY_LIMIT keys since it takes O(k n^3) to build
+ *
+ * a benchmark framework like JMH needs classes in a named package, and this project keeps every
+ * class in the default package, so warmup, timing and the allocation count are done here.
+ *
+ * usage: java OptimalBinarySearchTreeBenchmark [ sizes [ warmup runs [ timed runs ] ] ]
+ *        for example java OptimalBinarySearchTreeBenchmark 100,1000,4000 5 10
+ *
+ * @category Dynamic Programming
+ */
+public class OptimalBinarySearchTreeBenchmark {
+
+	// the distributions the probabilities are drawn from
+	private static final String[] DISTRIBUTIONS = { "uniform", "zipf", "skewed", "miss-heavy" };
+	// the number of searches in one lookup run
+	private static final int LOOKUPS = 1 << 16;
+	// the most keys a MultiwaySearchTree is built for
+	private static final int MULTIWAY_LIMIT = 1000;
+
+	// results are added here so the JIT can not drop the work that made them
+	private static volatile long sink;
+
+	public static void main( String[] args ) {
+		int[] sizes = { 100, 1000, 2000 };
+		int warmup = 5;
+		int runs = 10;
+		if ( args.length > 0 ) {
+			sizes = Arrays.stream( args[ 0 ].split( "," ) ).mapToInt( Integer::parseInt ).toArray();
+		}
+		if ( args.length > 1 ) {
+			warmup = Integer.parseInt( args[ 1 ] );
+		}
+		if ( args.length > 2 ) {
+			runs = Integer.parseInt( args[ 2 ] );
+		}
+
+		System.out.printf( "%-20s %-11s %8s %14s %14s %14s %16s%n",
+				"benchmark", "distribution", "n", "mean", "stddev", "fastest", "bytes/op" );
+		for ( String distribution : DISTRIBUTIONS ) {
+			for ( int size : sizes ) {
+				benchmark( distribution, size, warmup, runs );
+			}
+		}
+	}
+
+	/**
+	 * benchmark runs every benchmark for one distribution and size
+	 *
+	 * @param distribution - the name of the distribution
+	 * @param keyCount - the number of keys
+	 * @param warmup - the number of runs before the timing starts
+	 * @param runs - the number of timed runs
+	 */
+	private static void benchmark( String distribution, int keyCount, int warmup, int runs ) {
+		int n = keyCount + 1;
+		Random random = new Random( 42 );
+		// the keys are even, so every odd number falls between two keys
+		int[] keys = new int[ keyCount ];
+		for ( int k = 0; k < keyCount; k++ ) {
+			keys[ k ] = 2 * k;
+		}
+		double[] p = new double[ n ];
+		double[] q = new double[ n ];
+		fill( distribution, p, q, n, random );
+
+		SolverOptions knuth = new SolverOptions( OptimalBinarySearchTree.Engine.KNUTH );
+		knuth.setPrefixSumWeights( true );
+		knuth.setTreeForm( OptimalBinarySearchTree.TreeForm.FLAT );
+		SolverOptions approximate = new SolverOptions( OptimalBinarySearchTree.Engine.APPROXIMATE );
+		approximate.setTreeForm( OptimalBinarySearchTree.TreeForm.FLAT );
+
+		report( "solve knuth", distribution, n, 1, warmup, runs,
+				() -> Double.doubleToLongBits( new OptimalBinarySearchTree( keys, p, q, n, knuth ).getCost() ) );
+		report( "solve approximate", distribution, n, 1, warmup, runs,
+				() -> Double.doubleToLongBits( new OptimalBinarySearchTree( keys, p, q, n, approximate ).getCost() ) );
+
+		OptimalBinarySearchTree tree = new OptimalBinarySearchTree( keys, p, q, n, knuth );
+		report( "makeTree", distribution, n, 1, warmup, runs,
+				() -> tree.makeNodeTree().getKey() );
+
+		PrintWriter nowhere = new PrintWriter( Writer.nullWriter() );
+		report( "inOrder", distribution, n, 1, warmup, runs, () -> {
+			tree.inOrderToFile( nowhere );
+			return 0;
+		} );
+
+		// the searches follow the probabilities, a miss searches for the odd number in its gap
+		int[] queries = new int[ LOOKUPS ];
+		double[] cumulative = new double[ 2 * n - 1 ];
+		double sum = 0;
+		for ( int c = 0; c < 2 * n - 1; c++ ) {
+			sum += c % 2 == 0 ? q[ c / 2 ] : p[ c / 2 + 1 ];
+			cumulative[ c ] = sum;
+		}
+		for ( int s = 0; s < LOOKUPS; s++ ) {
+			int c = Arrays.binarySearch( cumulative, random.nextDouble() * sum );
+			c = Math.min( c < 0 ? -c - 1 : c, 2 * n - 2 );
+			queries[ s ] = c % 2 == 0 ? 2 * ( c / 2 ) - 1 : 2 * ( c / 2 );
+		}
+		LookupTree lookup = tree.getLookupTree();
+		report( "lookup", distribution, n, LOOKUPS, warmup, runs, () -> {
+			long found = 0;
+			for ( int query : queries ) {
+				found += lookup.search( query );
+			}
+			return found;
+		} );
+
+		if ( keyCount <= MULTIWAY_LIMIT ) {
+			MultiwaySearchTree multiway = MultiwaySearchTree.build( keys, p, q, n );
+			report( "multiway lookup", distribution, n, LOOKUPS, warmup, runs, () -> {
+				long found = 0;
+				for ( int query : queries ) {
+					found += multiway.search( query );
+				}
+				return found;
+			} );
+		}
+	}
+
+	/**
+	 * fill draws the probabilities from a distribution and makes them add up to 1
+	 *
+	 * @param distribution - uniform, zipf, skewed or miss-heavy
+	 * @param p - array of doubles that receives the probabilities of the keys
+	 * @param q - array of doubles that receives the probabilities of the dummy keys
+	 * @param n - the number of keys plus one
+	 * @param random - Random to draw from
+	 */
+	private static void fill( String distribution, double[] p, double[] q, int n, Random random ) {
+		// zipf gives the keys the weights 1, 1/2, 1/3 .. in a random order
+		int[] rank = new int[ n ];
+		for ( int i = 0; i < n; i++ ) {
+			rank[ i ] = i + 1;
+		}
+		for ( int i = n - 1; i > 1; i-- ) {
+			int other = 1 + random.nextInt( i );
+			int swap = rank[ i ];
+			rank[ i ] = rank[ other ];
+			rank[ other ] = swap;
+		}
+
+		double sum = 0;
+		for ( int i = 0; i < n; i++ ) {
+			double key;
+			double miss;
+			switch ( distribution ) {
+				case "uniform":
+					key = 1;
+					miss = 1;
+					break;
+				case "zipf":
+					key = 1.0 / rank[ i ];
+					miss = 0.1 / n;
+					break;
+				case "skewed":
+					key = Math.pow( random.nextDouble(), 8 );
+					miss = Math.pow( random.nextDouble(), 8 );
+					break;
+				default:
+					key = random.nextDouble();
+					miss = 10 * random.nextDouble();
+					break;
+			}
+			p[ i ] = i > 0 ? key : 0;
+			q[ i ] = miss;
+			sum += p[ i ] + q[ i ];
+		}
+		for ( int i = 0; i < n; i++ ) {
+			p[ i ] /= sum;
+			q[ i ] /= sum;
+		}
+	}
+
+	/**
+	 * report warms up and times one benchmark and prints a line of results
+	 *
+	 * @param name - the name of the benchmark
+	 * @param distribution - the name of the distribution
+	 * @param n - the number of keys plus one
+	 * @param operations - the number of operations in one run, the times are per operation
+	 * @param warmup - the number of runs before the timing starts
+	 * @param runs - the number of timed runs
+	 * @param benchmark - the work of one run
+	 */
+	private static void report( String name, String distribution, int n, int operations, int warmup, int runs,
+			LongSupplier benchmark ) {
+		for ( int w = 0; w < warmup; w++ ) {
+			sink += benchmark.getAsLong();
+		}
+		double[] times = new double[ runs ];
+		long allocated = 0;
+		for ( int r = 0; r < runs; r++ ) {
+			long bytes = allocatedBytes();
+			long start = System.nanoTime();
+			sink += benchmark.getAsLong();
+			times[ r ] = ( double ) ( System.nanoTime() - start ) / operations;
+			allocated += allocatedBytes() - bytes;
+		}
+
+		double mean = 0;
+		double fastest = Double.MAX_VALUE;
+		for ( double time : times ) {
+			mean += time / runs;
+			fastest = Math.min( fastest, time );
+		}
+		double variance = 0;
+		for ( double time : times ) {
+			variance += ( time - mean ) * ( time - mean ) / Math.max( 1, runs - 1 );
+		}
+		System.out.printf( "%-20s %-11s %8d %14s %14s %14s %16d%n", name, distribution, n - 1,
+				format( mean ), format( Math.sqrt( variance ) ), format( fastest ), allocated / runs / operations );
+	}
+
+	/**
+	 * allocatedBytes returns the bytes this thread has allocated so far, when the JVM counts them
+	 *
+	 * @return - long which is the number of bytes, or 0 when the JVM does not count them
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if ( threads instanceof com.sun.management.ThreadMXBean ) {
+			return ( ( com.sun.management.ThreadMXBean ) threads ).getThreadAllocatedBytes( Thread.currentThread().getId() );
+		}
+		return 0;
+	}
+
+	private static String format( double nanoseconds ) {
+		if ( nanoseconds >= 1e6 ) {
+			return String.format( "%.3f ms", nanoseconds / 1e6 );
+		} else if ( nanoseconds >= 1e3 ) {
+			return String.format( "%.3f us", nanoseconds / 1e3 );
+		}
+		return String.format( "%.1f ns", nanoseconds );
+	}
+}
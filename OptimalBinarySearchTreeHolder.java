@@ -0,0 +1,104 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * OptimalBinarySearchTreeHolder lets many threads search a tree while a new tree is built in the
+ * background. readers get the current LookupTree, which never changes, straight out of an atomic
+ * reference, so a search never takes a lock and never waits for a build. a finished build replaces
+ * the reference in one step. only the LookupTree is kept, not the tables the build used, and an old
+ * tree is garbage collected as soon as the last reader that still holds it is done with it.
+ *
+ * @category Dynamic Programming
+ */
+public class OptimalBinarySearchTreeHolder {
+
+	// the tree that searches use right now
+	private final AtomicReference<LookupTree> current;
+	// number of the last build that was started, and of the build that was published
+	private long started;
+	private long published;
+
+	/**
+	 * OptimalBinarySearchTreeHolder constructor
+	 *
+	 * @param tree - the first tree to search
+	 */
+	public OptimalBinarySearchTreeHolder( OptimalBinarySearchTree tree ) {
+		current = new AtomicReference<LookupTree>( tree.getLookupTree() );
+		started = 0;
+		published = 0;
+	}
+
+	/**
+	 * snapshot returns the tree that searches use right now. it stays the same for as long as the
+	 * caller keeps it, even when a new tree is published, so a batch of searches can use one snapshot
+	 *
+	 * @return - LookupTree which is the current tree
+	 */
+	public LookupTree snapshot() {
+		return current.get();
+	}
+
+	/**
+	 * search looks for a key in the current tree, see LookupTree.search
+	 *
+	 * @param key - the key to look for
+	 * @return - the position of the key when it is found, otherwise -( gap ) - 1
+	 */
+	public int search( int key ) {
+		return current.get().search( key );
+	}
+
+	/**
+	 * publish makes a built tree the one that searches use
+	 *
+	 * @param tree - the new tree
+	 */
+	public void publish( OptimalBinarySearchTree tree ) {
+		long version;
+		synchronized ( this ) {
+			version = ++started;
+		}
+		publish( version, tree.getLookupTree() );
+	}
+
+	/**
+	 * rebuild builds a new tree on the executor and publishes it when it is done. if several
+	 * rebuilds run at the same time, a rebuild that was started earlier never replaces the
+	 * tree of one that was started later
+	 *
+	 * @param keys - an array of keys
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param n - the number of keys
+	 * @param options - SolverOptions for the build
+	 * @param executor - Executor to build on
+	 * @return - CompletableFuture that completes with the new tree once it is built
+	 */
+	public CompletableFuture<OptimalBinarySearchTree> rebuild( int[] keys, double[] p, double[] q, int n,
+			SolverOptions options, Executor executor ) {
+		final long version;
+		synchronized ( this ) {
+			version = ++started;
+		}
+		return CompletableFuture.supplyAsync( () -> {
+			OptimalBinarySearchTree tree = new OptimalBinarySearchTree( keys, p, q, n, options );
+			publish( version, tree.getLookupTree() );
+			return tree;
+		}, executor );
+	}
+
+	/**
+	 * publish replaces the current tree unless a newer build was already published
+	 *
+	 * @param version - the number of the build
+	 * @param tree - the new tree
+	 */
+	private synchronized void publish( long version, LookupTree tree ) {
+		if ( version > published ) {
+			published = version;
+			current.set( tree );
+		}
+	}
+}
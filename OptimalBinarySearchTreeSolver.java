@@ -0,0 +1,319 @@
+import java.util.Arrays;
+
+/**
+ * OptimalBinarySearchTreeSolver solves one instance after another into tables that it keeps. every
+ * new OptimalBinarySearchTree makes its own tables, which for many small instances costs more in
+ * allocation and garbage collection than the solving does. a solver grows its tables to the largest
+ * n it has seen and then solves without allocating anything, and copies of the results are only made
+ * when they are asked for. the engine is Knuth's bounded one with prefix sum weights, so the cost and
+ * roots are the same as an OptimalBinarySearchTree built with Engine.KNUTH and prefix sum weights.
+ *
+ * solveCounts takes the numbers of searches instead of probabilities and calculates with whole
+ * numbers, so the counts do not have to be divided by their total first, every cost is exact and
+ * the same input always gives the same tree, whatever order the sums are added in.
+ *
+ * a solver is not thread safe. forThread gives every thread a solver of its own, which is the one to
+ * use from a pool of threads
+ *
+ * @category Dynamic Programming
+ */
+public class OptimalBinarySearchTreeSolver {
+
+	// one solver per thread, made the first time the thread asks
+	private static final ThreadLocal<OptimalBinarySearchTreeSolver> SOLVERS =
+			ThreadLocal.withInitial( OptimalBinarySearchTreeSolver::new );
+
+	// the tables, sized for the largest n so far and resized for every instance
+	private PackedCostTable expectedCosts;
+	private PrefixSumWeights weights;
+	private PackedRootTable roots;
+	// the expected costs and prefix sums of solveCounts, made the first time it is called
+	private PackedCountTable countCosts;
+	private long[] countUpTo;
+	private long[] countBefore;
+	// the largest n the tables hold without growing
+	private int capacity;
+	// the instance that was solved last, the keys are not copied
+	private int[] keys;
+	private int n;
+	private double cost;
+	// true when the instance solved last was given as counts, with its exact cost and total
+	private boolean counted;
+	private long countCost;
+	private long total;
+
+	/**
+	 * OptimalBinarySearchTreeSolver constructor with tables that grow on the first solve
+	 */
+	public OptimalBinarySearchTreeSolver() {
+		this( 1 );
+	}
+
+	/**
+	 * OptimalBinarySearchTreeSolver constructor with tables that hold a given n without growing
+	 *
+	 * @param capacity - the largest number of keys plus one that is expected
+	 */
+	public OptimalBinarySearchTreeSolver( int capacity ) {
+		if ( capacity < 1 ) {
+			throw new IllegalArgumentException( "the capacity must be at least 1" );
+		}
+		this.capacity = capacity;
+		expectedCosts = new PackedCostTable( capacity );
+		weights = new PrefixSumWeights( new double[ capacity ], new double[ capacity ], capacity );
+		roots = new PackedRootTable( capacity );
+	}
+
+	/**
+	 * forThread returns the solver of the calling thread
+	 *
+	 * @return - OptimalBinarySearchTreeSolver that only this thread uses
+	 */
+	public static OptimalBinarySearchTreeSolver forThread() {
+		return SOLVERS.get();
+	}
+
+	/**
+	 * solve calculates the optimal tree for an instance into the tables of the solver. the results
+	 * of the instance solved before are lost
+	 *
+	 * @param keys - an array of keys in ascending order, it is not copied and must not change while
+	 *               the results are used
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param n - the number of keys plus one
+	 * @return - double which is the expected cost of the tree
+	 * @throws IllegalArgumentException when the input does not describe a tree, see OptimalBinarySearchTree,
+	 *         or n is too large for a packed table
+	 */
+	public double solve( int[] keys, double[] p, double[] q, int n ) {
+		OptimalBinarySearchTree.validate( keys, p, q, n );
+		if ( n > capacity ) {
+			capacity = n;
+		}
+		expectedCosts.resize( n );
+		weights.resize( n );
+		weights.update( p, q );
+		roots.resize( n );
+		this.keys = keys;
+		this.n = n;
+		counted = false;
+
+		for ( int i = 1; i < ( n + 1 ); i++ ) {
+			expectedCosts.set( i, i - 1, q[ i - 1 ] );
+		}
+		// every cell is calculated like OptimalBinarySearchTree calculates it with Knuth's engine
+		for ( int l = 1; l < n; l++ ) {
+			for ( int i = 1; i < ( n - l + 1 ); i++ ) {
+				OptimalBinarySearchTree.calculateCell( expectedCosts, weights, roots, p, q, i, i + l - 1, true, false );
+			}
+		}
+		cost = expectedCosts.get( 1, n - 1 );
+		return cost;
+	}
+
+	/**
+	 * solveCounts calculates the optimal tree for the numbers of searches of an instance, with whole
+	 * numbers. the cost of a cell is the number of comparisons the searches of its keys take, and
+	 * getCost gives it divided by the total, which is the cost solve gives for the probabilities
+	 *
+	 * @param keys - an array of keys in ascending order, it is not copied and must not change while
+	 *               the results are used
+	 * @param hits - the number of searches for every key, hits[k] is for keys[k - 1] and hits[0] is not used
+	 * @param misses - the number of searches that end in every dummy key
+	 * @param n - the number of keys plus one
+	 * @return - long which is the number of comparisons all the searches take in the tree
+	 * @throws IllegalArgumentException when the input does not describe a tree, a count is negative or
+	 *         the number of comparisons could be too large for a long
+	 */
+	public long solveCounts( int[] keys, long[] hits, long[] misses, int n ) {
+		if ( n < 1 ) {
+			throw new IllegalArgumentException( "n must be at least 1, it is the number of keys plus one" );
+		}
+		if ( keys.length < n - 1 || hits.length < n || misses.length < n ) {
+			throw new IllegalArgumentException( "n = " + n + " needs " + ( n - 1 ) + " keys and " + n + " entries in hits and misses" );
+		}
+		// no search takes more than n comparisons, so a total up to limit keeps every cost in a long
+		long limit = Long.MAX_VALUE / ( n + 1 );
+		long sum = 0;
+		for ( int i = 0; i < n; i++ ) {
+			long hit = i > 0 ? hits[ i ] : 0;
+			if ( hit < 0 || misses[ i ] < 0 ) {
+				throw new IllegalArgumentException( "the counts of key " + i + " are negative" );
+			}
+			if ( i > 1 && keys[ i - 1 ] < keys[ i - 2 ] ) {
+				throw new IllegalArgumentException( "the keys are not in ascending order at keys[" + ( i - 1 ) + "]" );
+			}
+			if ( hit > limit || misses[ i ] > limit ) {
+				throw new IllegalArgumentException( "the counts add up to too many comparisons for a long" );
+			}
+			sum += hit + misses[ i ];
+			if ( sum > limit ) {
+				throw new IllegalArgumentException( "the counts add up to too many comparisons for a long" );
+			}
+		}
+
+		if ( n > capacity ) {
+			capacity = n;
+		}
+		if ( countCosts == null || countUpTo.length < n ) {
+			countCosts = new PackedCountTable( capacity );
+			countUpTo = new long[ capacity ];
+			countBefore = new long[ capacity + 1 ];
+		}
+		countCosts.resize( n );
+		roots.resize( n );
+		this.keys = keys;
+		this.n = n;
+		total = sum;
+		counted = true;
+
+		// countUpTo[j] - countBefore[i] is the weight of keys i .. j, see PrefixSumWeights
+		sum = 0;
+		for ( int j = 0; j < n; j++ ) {
+			if ( j > 0 ) {
+				sum += hits[ j ];
+			}
+			countBefore[ j + 1 ] = sum;
+			sum += misses[ j ];
+			countUpTo[ j ] = sum;
+		}
+
+		for ( int i = 1; i < ( n + 1 ); i++ ) {
+			countCosts.set( i, i - 1, misses[ i - 1 ] );
+		}
+		for ( int l = 1; l < n; l++ ) {
+			for ( int i = 1; i < ( n - l + 1 ); i++ ) {
+				int j = i + l - 1;
+				int first = i;
+				int last = j;
+				if ( i < j ) {
+					first = roots.get( i, ( j - 1 ) );
+					last = roots.get( ( i + 1 ), j );
+				}
+				int bestRoot = countCosts.bestRoot( i, j, first, last );
+				countCosts.set( i, j, countCosts.get( i, ( bestRoot - 1 ) ) + countCosts.get( ( bestRoot + 1 ), j )
+						+ countUpTo[ j ] - countBefore[ i ] );
+				roots.set( i, j, bestRoot );
+			}
+		}
+		countCost = countCosts.get( 1, n - 1 );
+		cost = total > 0 ? ( double ) countCost / total : 0;
+		return countCost;
+	}
+
+	/**
+	 * getCost returns the expected cost of the instance solved last. for counts it is the number of
+	 * comparisons divided by the total number of searches
+	 *
+	 * @return - double which is the expected cost
+	 */
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * getCountCost returns the number of comparisons of the instance solveCounts solved last
+	 *
+	 * @return - long which is the number of comparisons, or 0 when the last instance was not counts
+	 */
+	public long getCountCost() {
+		return counted ? countCost : 0;
+	}
+
+	/**
+	 * getTotal returns the number of searches of the instance solveCounts solved last
+	 *
+	 * @return - long which is the total of the counts, or 0 when the last instance was not counts
+	 */
+	public long getTotal() {
+		return counted ? total : 0;
+	}
+
+	/**
+	 * getN returns n of the instance solved last
+	 *
+	 * @return - int which is the number of keys plus one, or 0 before the first solve
+	 */
+	public int getN() {
+		return n;
+	}
+
+	/**
+	 * getCapacity returns the largest n the tables hold without growing
+	 *
+	 * @return - int which is the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * getRoot returns a cell of the roots table of the instance solved last, without copying anything
+	 *
+	 * @param i - row index, 1 <= i <= n
+	 * @param j - column index, i <= j <= n - 1
+	 * @return - int which is the root of keys i .. j
+	 */
+	public int getRoot( int i, int j ) {
+		return roots.get( i, j );
+	}
+
+	/**
+	 * copyExpectedCosts copies the expected costs of the instance solved last. for counts the cells
+	 * are the numbers of comparisons, which are exact up to 2^53
+	 *
+	 * @return - CostTable which the solver does not change again
+	 */
+	public CostTable copyExpectedCosts() {
+		checkSolved();
+		PackedCostTable copy = new PackedCostTable( n );
+		for ( int i = 1; i < ( n + 1 ); i++ ) {
+			for ( int j = i - 1; j < n; j++ ) {
+				copy.set( i, j, counted ? countCosts.get( i, j ) : expectedCosts.get( i, j ) );
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * copyRoots copies the roots of the instance solved last
+	 *
+	 * @return - RootTable which the solver does not change again
+	 */
+	public RootTable copyRoots() {
+		checkSolved();
+		PackedRootTable copy = new PackedRootTable( n );
+		for ( int i = 1; i < ( n + 1 ); i++ ) {
+			for ( int j = i; j < n; j++ ) {
+				copy.set( i, j, roots.get( i, j ) );
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * copyTree makes the tree of the instance solved last
+	 *
+	 * @return - FlatTree with a copy of the keys
+	 */
+	public FlatTree copyTree() {
+		checkSolved();
+		return FlatTree.fromRoots( roots, Arrays.copyOf( keys, n - 1 ), n );
+	}
+
+	private void checkSolved() {
+		if ( keys == null ) {
+			throw new IllegalStateException( "no instance has been solved yet" );
+		}
+	}
+
+	/**
+	 * copyLookupTree makes the tree of the instance solved last, laid out for searching
+	 *
+	 * @return - LookupTree for the keys of the instance
+	 */
+	public LookupTree copyLookupTree() {
+		return new LookupTree( copyTree() );
+	}
+}
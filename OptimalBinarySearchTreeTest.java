@@ -1,7 +1,13 @@
 import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Scanner;
 import java.util.Random;
@@ -23,12 +29,20 @@ public class OptimalBinarySearchTreeTest {
 	private static final boolean APPEND = true;
 	private static boolean preorderOutput;
 	private static int traversalOrder = 0;
+	private static final String MATRIX_FILE = "OptimalBinarySearchTreeMatrices.bin";
+	private static MatrixWriter.Format matrixFormat = MatrixWriter.Format.FULL;
 	
 	/**
-	 * @param args - Not Applicable
+	 * @param args - none to ask what to run, or the arguments of OptimalBinarySearchTreeBatch to solve
+	 *               a directory or manifest of frequency files without asking anything
 	 */
 	public static void main(String[] args) {
 		
+		if ( args.length > 0 ) {
+			OptimalBinarySearchTreeBatch.main( args );
+			return;
+		}
+		
 		// scanner to read from std in
 		Scanner userInput = new Scanner(System.in);
 		
@@ -82,6 +96,28 @@ public class OptimalBinarySearchTreeTest {
 			}
 		}
 		
+		// get user input, continue to loop until user enters a valid integer option
+		validInput = false;
+		while ( !validInput ) {
+			System.out.print("\nHow should the c, w and r matrices be written?" 
+								+ "\n\t1) Every cell of the matrices"
+								+ "\n\t2) Only the upper triangle that is used"
+								+ "\n\t3) CSV lines of i, j and value"
+								+ "\n\t4) Binary, to " + MATRIX_FILE
+								+ "\n\t5) Do not write the matrices"
+								+ "\nPlease enter choice 1, 2, 3, 4 or 5: ");
+			input = userInput.nextLine();
+			try {
+				int matrixOption = Integer.parseInt( input );
+				if (matrixOption < 1 || matrixOption > 5 ) throw new NumberFormatException();
+				validInput = true;
+				matrixFormat = MatrixWriter.Format.values()[ matrixOption - 1 ];
+			}
+			catch ( NumberFormatException nfe ){
+				System.out.println("\nYour options are 1, 2, 3, 4 or 5. Try Again\n");
+			}
+		}
+		
 		// invoke the appropriate method according to user's choice
 		switch ( choice ) {
 			case 1: 
@@ -127,17 +163,23 @@ public class OptimalBinarySearchTreeTest {
 			try {
 				System.out.print("\nPlease select an option: \n" 
 						+ "\n\t1) Generate random probabilities and keys"
-						+ "\n\t2) Input custom probabilities and keys\n\nPlease make a selection: ");
+						+ "\n\t2) Input custom probabilities and keys"
+						+ "\n\t3) Load keys and search counts from a frequency file\n\nPlease make a selection: ");
 				input = userInput.nextLine();
 				choice = Integer.parseInt( input );
-				if ( choice < 1 || choice > 2 ) throw new NumberFormatException();
+				if ( choice < 1 || choice > 3 ) throw new NumberFormatException();
 				validInput = true;
 			}
 			catch (NumberFormatException nfe ) {
-				System.out.println("\nYour options are 1 or 2. Try Again\n");
+				System.out.println("\nYour options are 1, 2 or 3. Try Again\n");
 			}
 		}
 		
+		if ( choice == 3 ) {
+			loadFrequencyFile( userInput );
+			return;
+		}
+		
 		validInput = false;
 		while ( !validInput ) {
 			try {
@@ -165,6 +207,31 @@ public class OptimalBinarySearchTreeTest {
 		}
 	}
 	
+	/**
+	 * loadFrequencyFile builds the tree for the counts in a frequency file, see FrequencyFile
+	 * @param userInput
+	 */
+	private static void loadFrequencyFile( Scanner userInput ) {
+		
+		System.out.print("\nPlease enter the path of the frequency file: ");
+		String input = userInput.nextLine();
+		try {
+			FrequencyFile file = FrequencyFile.read( Paths.get( input.trim() ) );
+			OptimalBinarySearchTree oBst;
+			try {
+				oBst = file.build( new SolverOptions() );
+			}
+			catch ( OutOfMemoryError oome ) {
+				printTooLarge( file.getN() );
+				return;
+			}
+			printResults( oBst );
+		}
+		catch ( IOException | InvalidPathException e ) {
+			System.out.println("\nThe frequency file could not be read: " + e.getMessage());
+		}
+	}
+	
 	private static void customInput( int n, Scanner userInput ) {
 		
 		double[] p = new double[n];
@@ -345,8 +412,7 @@ public class OptimalBinarySearchTreeTest {
 			}
 		}
 		
-		OptimalBinarySearchTree oBst = new OptimalBinarySearchTree( keys, p, q, n );
-		printResults(oBst);
+		buildAndPrint( keys, p, q, n );
 	}
 	
 	private static void generateRandom( int n ) {
@@ -393,10 +459,42 @@ public class OptimalBinarySearchTreeTest {
 			}
 		}
 		
-		OptimalBinarySearchTree oBst = new OptimalBinarySearchTree( keys, p, q, n );
+		buildAndPrint( keys, p, q, n );
+	}
+	
+	/**
+	 * buildAndPrint builds the tree and prints the results, or says so when the tables do not fit
+	 * in the heap
+	 * 
+	 * @param keys - an array of keys
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param n - the number of keys plus one
+	 */
+	private static void buildAndPrint( int[] keys, double[] p, double[] q, int n ) {
+		OptimalBinarySearchTree oBst;
+		try {
+			oBst = new OptimalBinarySearchTree( keys, p, q, n );
+		}
+		catch ( OutOfMemoryError oome ) {
+			printTooLarge( n );
+			return;
+		}
 		printResults( oBst );
 	}
 	
+	/**
+	 * printTooLarge explains that the tables of a tree did not fit in the heap
+	 * 
+	 * @param n - the number of keys plus one
+	 */
+	private static void printTooLarge( int n ) {
+		// a cost, a weight and a root for every cell of the triangle
+		long megabytes = PackedCostTable.cellCount( n ) * ( 2 * Double.BYTES + Integer.BYTES ) >> 20;
+		System.out.printf( "\nThe tables for %d keys need about %d MB, which is more than the heap holds."
+				+ " Run with a larger -Xms and -Xmx, see the README\n", n - 1, megabytes );
+	}
+	
 	public static void printResults( OptimalBinarySearchTree oBst ) {
 
 		// Printing out the cost, weight, and roots
@@ -407,44 +505,22 @@ public class OptimalBinarySearchTreeTest {
 		}
 		System.out.println("\n");
 		
-		// Printing out the cost, weight, and roots
-		System.out.println("\nCOST MATRIX\n-------------------------------");
-		double[][]costs = oBst.getExpectedCosts();
-		for ( double[] cost : costs ) {
-			for ( int c = 0; c < cost.length; c++ )
-			{
-				if ( c == ( cost.length - 1 ) ) {
-					System.out.printf( "%10.3f\n", cost[c] );	
-				} else {
-					System.out.printf( "%10.3f", cost[c] );					
-				}
-			}
-		}
-		
-		double[][] weights = oBst.getWeights();
-		System.out.println("\nWEIGHT MATRIX\n-------------------------------");
-		for ( double[] weight : weights ) {
-			for ( int w = 0; w < weight.length; w++ )
-			{
-				if ( w == ( weight.length - 1 ) ) {
-					System.out.printf( "%10.3f\n", weight[w] );	
-				} else {
-					System.out.printf( "%10.3f", weight[w] );					
-				}
-			}
-		}
-		
-		int[][] roots = oBst.getRoots();
-		System.out.println("\nROOT MATRIX\n-------------------------------");
-		for ( int[] root : roots ) {
-			for ( int r = 0; r < root.length; r++ )
-			{
-				if ( r == ( root.length - 1 ) ) {
-					System.out.printf( "%5d\n", root[ r ] );
-				} else {
-					System.out.printf( "%5d", root[ r ] );					
-				}
+		System.out.printf( "\nEXPECTED COST\n-------------------------------\n%10.3f\n", oBst.getCost() );
+
+		if ( oBst.getExpectedCosts() == null ) {
+			System.out.println("\nthe " + oBst.getMetrics().getEngine() + " engine does not build the c, w and r matrices");
+		} else if ( matrixFormat == MatrixWriter.Format.BINARY ) {
+			System.out.println("\nthe c, w and r matrices are written to " + MATRIX_FILE);
+		} else if ( matrixFormat != MatrixWriter.Format.NONE ) {
+			// the matrices go through a channel on System.out, after everything printed before them
+			System.out.flush();
+			long outputStart = System.nanoTime();
+			try {
+				writeMatrices( oBst, new MatrixWriter( Channels.newChannel( System.out ) ) );
+			} catch ( IOException e ) {
+				System.out.println(e);
 			}
+			oBst.endOutput( outputStart );
 		}
 		
 		outputToFile( oBst );
@@ -462,13 +538,34 @@ public class OptimalBinarySearchTreeTest {
 		}	
 	}
 	
+	/**
+	 * writeMatrices writes the c, w and r matrices in the chosen text format
+	 * @param oBst - the tree whose matrices are written
+	 * @param matrices - MatrixWriter to write them with
+	 * @throws IOException when the matrices can not be written
+	 */
+	private static void writeMatrices( OptimalBinarySearchTree oBst, MatrixWriter matrices ) throws IOException {
+		String newLine = System.lineSeparator();
+		matrices.print("\nCOST MATRIX\n-------------------------------" + newLine);
+		matrices.writeCosts( oBst.getExpectedCosts(), matrixFormat );
+		matrices.print("\nWEIGHT MATRIX\n-------------------------------" + newLine);
+		matrices.writeCosts( oBst.getWeights(), matrixFormat );
+		matrices.print("\nROOT MATRIX\n-------------------------------" + newLine);
+		matrices.writeRoots( oBst.getRoots(), matrixFormat );
+		matrices.flush();
+	}
+	
 	private static void outputToFile( OptimalBinarySearchTree oBst ) {
 		
 		PrintWriter out = null;
+		FileOutputStream file = null;
+		// the time of the file is added to the OUTPUT phase, apart from the traversals, which time themselves
+		long outputStart = System.nanoTime();
 		
 		try {
 			
-			 out = new PrintWriter(new BufferedWriter(new FileWriter(OUTPUT_FILE, APPEND)));
+			 file = new FileOutputStream(OUTPUT_FILE, APPEND);
+			 out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(file)));
 			 
 			// Printing out the cost, weight, and roots
 			out.printf("\nOptimal Binary Search Tree Execution Time for n = %d keys\n--------------------------------------------------------------\n", oBst.getKeys().length );
@@ -482,46 +579,27 @@ public class OptimalBinarySearchTreeTest {
 			}
 			out.println("\n");
 			
-			// Printing out the cost, weight, and roots
-			out.println("\nCOST MATRIX\n-------------------------------");
-			double[][]costs = oBst.getExpectedCosts();
-			for ( double[] cost : costs ) {
-				for ( int c = 0; c < cost.length; c++ )
-				{
-					if ( c == ( cost.length - 1 ) ) {
-						out.printf( "%10.3f\n", cost[c] );	
-					} else {
-						out.printf( "%10.3f", cost[c] );					
-					}
-				}
-			}
-			
-			double[][] weights = oBst.getWeights();
-			out.println("\nWEIGHT MATRIX\n-------------------------------");
-			for ( double[] weight : weights ) {
-				for ( int w = 0; w < weight.length; w++ )
-				{
-					if ( w == ( weight.length - 1 ) ) {
-						out.printf( "%10.3f\n", weight[w] );	
-					} else {
-						out.printf( "%10.3f", weight[w] );					
-					}
-				}
-			}
-			
-			int[][] roots = oBst.getRoots();
-			out.println("\nROOT MATRIX\n-------------------------------");
-			for ( int[] root : roots ) {
-				for ( int r = 0; r < root.length; r++ )
-				{
-					if ( r == ( root.length - 1 ) ) {
-						out.printf( "%5d\n", root[ r ] );
-					} else {
-						out.printf( "%5d", root[ r ] );					
-					}
+			out.printf( "\nEXPECTED COST\n-------------------------------\n%10.3f\n", oBst.getCost() );
+
+			if ( oBst.getExpectedCosts() == null ) {
+				out.println("\nthe " + oBst.getMetrics().getEngine() + " engine does not build the c, w and r matrices");
+			} else if ( matrixFormat == MatrixWriter.Format.BINARY ) {
+				out.println("\nthe c, w and r matrices are written to " + MATRIX_FILE);
+				try ( FileChannel binary = FileChannel.open( Paths.get( MATRIX_FILE ), StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+					MatrixWriter matrices = new MatrixWriter( binary );
+					matrices.writeCosts( oBst.getExpectedCosts(), matrixFormat );
+					matrices.writeCosts( oBst.getWeights(), matrixFormat );
+					matrices.writeRoots( oBst.getRoots(), matrixFormat );
+					matrices.flush();
 				}
+			} else if ( matrixFormat != MatrixWriter.Format.NONE ) {
+				// the matrices go straight to the file's channel, after everything printed before them
+				out.flush();
+				writeMatrices( oBst, new MatrixWriter( file.getChannel() ) );
 			}
 			
+			oBst.endOutput( outputStart );
 			if (preorderOutput) {
 				if (traversalOrder == 1) {
 					// print the tree in a preorder format
@@ -535,11 +613,13 @@ public class OptimalBinarySearchTreeTest {
 					out.println("\nEnd of inOrder Traversal\n");	
 				}
 			}
+			outputStart = System.nanoTime();
 		} catch (IOException e) {		// catch block 
 		System.out.println(e);
 	        System.out.printf("Problem writing to the file %s");
 	        System.exit(0);
 		}
 		out.close();
+		oBst.endOutput( outputStart );
 	}
 }
@@ -0,0 +1,127 @@
+/**
+ * PackedCostTable stores the used upper triangle of a CostTable row by row in a single array,
+ * so it needs n(n+1)/2 doubles instead of (n+1)n doubles and n + 1 row objects.
+ * 
+ * @category Dynamic Programming
+ */
+public class PackedCostTable implements CostTable {
+
+	// n, the table has n + 1 rows and n columns
+	private int n;
+	// rowStart[i] + j is the position of cell [i][j] in cells
+	private int[] rowStart;
+	// the stored cells, row by row
+	private double[] cells;
+
+	/**
+	 * PackedCostTable constructor makes a table with every cell set to 0
+	 * 
+	 * @param n - the number of keys plus one ( the same n that is passed to OptimalBinarySearchTree )
+	 */
+	public PackedCostTable( int n ) {
+		this.n = n;
+		rowStart = rowStarts( n );
+		cells = new double[ ( int ) packedLength( n ) ];
+	}
+
+	/**
+	 * resize makes the table hold a different n. the arrays are kept when they are large enough,
+	 * otherwise they are replaced by arrays of the new size. the cells are not cleared
+	 * 
+	 * @param n - the number of keys plus one
+	 */
+	void resize( int n ) {
+		int length = ( int ) packedLength( n );
+		if ( rowStart.length < n + 2 ) {
+			rowStart = new int[ n + 2 ];
+		}
+		fillRowStarts( rowStart, n );
+		if ( cells.length < length ) {
+			cells = new double[ length ];
+		}
+		this.n = n;
+	}
+
+	public int getSize() {
+		return n;
+	}
+
+	public long getBytes() {
+		return ( long ) cells.length * Double.BYTES + ( long ) rowStart.length * Integer.BYTES;
+	}
+
+	public boolean contains( int i, int j ) {
+		return i >= 1 && i <= n && j >= i - 1 && j < n;
+	}
+
+	public double get( int i, int j ) {
+		return cells[ rowStart[ i ] + j ];
+	}
+
+	public void set( int i, int j, double value ) {
+		cells[ rowStart[ i ] + j ] = value;
+	}
+
+	/**
+	 * packedLength returns the number of cells in the upper triangle, which is n(n+1)/2
+	 * 
+	 * @param n - the number of keys plus one
+	 * @return - long which is the number of stored cells
+	 * @throws IllegalArgumentException when the triangle does not fit in a single Java array
+	 */
+	static long packedLength( int n ) {
+		if ( !fits( n ) ) {
+			throw new IllegalArgumentException( "n = " + n + " is too large for a packed table" );
+		}
+		return cellCount( n );
+	}
+
+	/**
+	 * fits checks if the triangle fits in a single Java array, which holds for n up to about 65500.
+	 * larger tables are kept in a RowCostTable or off the heap
+	 * 
+	 * @param n - the number of keys plus one
+	 * @return - true when a packed table can hold n
+	 */
+	static boolean fits( int n ) {
+		return cellCount( n ) <= Integer.MAX_VALUE - 8;
+	}
+
+	/**
+	 * cellCount returns the number of cells in the upper triangle, however large it is
+	 * 
+	 * @param n - the number of keys plus one
+	 * @return - long which is n(n+1)/2
+	 */
+	static long cellCount( int n ) {
+		return ( long ) n * ( n + 1 ) / 2;
+	}
+
+	/**
+	 * rowStarts works out where every row begins. row i holds columns i - 1 .. n - 1, so the rows
+	 * before it hold ( i - 1 )( n + 1 ) - ( i - 1 ) i / 2 cells. the column that the row begins
+	 * with is taken off, so that rowStart[i] + j is the position of cell [i][j]
+	 * 
+	 * @param n - the number of keys plus one
+	 * @return - array of ints with the start of rows 0 .. n + 1
+	 */
+	static int[] rowStarts( int n ) {
+		int[] rowStart = new int[ n + 2 ];
+		fillRowStarts( rowStart, n );
+		return rowStart;
+	}
+
+	/**
+	 * fillRowStarts works out where every row begins, into an array that already exists
+	 * 
+	 * @param rowStart - array of at least n + 2 ints that receives the start of rows 0 .. n + 1
+	 * @param n - the number of keys plus one
+	 */
+	static void fillRowStarts( int[] rowStart, int n ) {
+		long start = 0;
+		for ( int i = 1; i < ( n + 2 ); i++ ) {
+			rowStart[ i ] = ( int ) ( start - ( i - 1 ) );
+			start += n - i + 1;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * PackedCountTable stores the used upper triangle of the expected costs as whole numbers, row by row
+ * like PackedCostTable. it is used when the tree is calculated from search counts instead of
+ * probabilities, so every cost is an exact count of comparisons and nothing is rounded.
+ * 
+ * @category Dynamic Programming
+ */
+public class PackedCountTable {
+
+	// n, the table has n + 1 rows and n columns
+	private int n;
+	// rowStart[i] + j is the position of cell [i][j] in cells
+	private int[] rowStart;
+	// the stored cells, row by row
+	private long[] cells;
+
+	/**
+	 * PackedCountTable constructor makes a table with every cell set to 0
+	 * 
+	 * @param n - the number of keys plus one ( the same n that is passed to OptimalBinarySearchTree )
+	 */
+	public PackedCountTable( int n ) {
+		this.n = n;
+		rowStart = PackedCostTable.rowStarts( n );
+		cells = new long[ ( int ) PackedCostTable.packedLength( n ) ];
+	}
+
+	/**
+	 * resize makes the table hold a different n. the arrays are kept when they are large enough,
+	 * otherwise they are replaced by arrays of the new size. the cells are not cleared
+	 * 
+	 * @param n - the number of keys plus one
+	 */
+	void resize( int n ) {
+		int length = ( int ) PackedCostTable.packedLength( n );
+		if ( rowStart.length < n + 2 ) {
+			rowStart = new int[ n + 2 ];
+		}
+		PackedCostTable.fillRowStarts( rowStart, n );
+		if ( cells.length < length ) {
+			cells = new long[ length ];
+		}
+		this.n = n;
+	}
+
+	/**
+	 * getSize returns n, the table has n + 1 rows and n columns
+	 * 
+	 * @return - int which is n
+	 */
+	public int getSize() {
+		return n;
+	}
+
+	/**
+	 * getBytes returns the memory the table takes for its cells and indexes
+	 * 
+	 * @return - long which is the number of bytes
+	 */
+	public long getBytes() {
+		return ( long ) cells.length * Long.BYTES + ( long ) rowStart.length * Integer.BYTES;
+	}
+
+	/**
+	 * get returns the value of a cell that is stored by the table
+	 * 
+	 * @param i - row index
+	 * @param j - column index
+	 * @return - long which is the value of cell [i][j]
+	 */
+	public long get( int i, int j ) {
+		return cells[ rowStart[ i ] + j ];
+	}
+
+	/**
+	 * set changes the value of a cell that is stored by the table
+	 * 
+	 * @param i - row index
+	 * @param j - column index
+	 * @param value - the new value of cell [i][j]
+	 */
+	public void set( int i, int j, long value ) {
+		cells[ rowStart[ i ] + j ] = value;
+	}
+
+	/**
+	 * bestRoot finds the root r in first .. last with the smallest cost
+	 * get( i, r - 1 ) + get( r + 1, j ), see CostTable.bestRoot. the weight is the same for every r,
+	 * so it is left out. ties keep the smallest r
+	 * 
+	 * @param i - row index of the cell
+	 * @param j - column index of the cell
+	 * @param first - the first root to try
+	 * @param last - the last root to try
+	 * @return - int which is the best root, or 0 when first > last
+	 */
+	public int bestRoot( int i, int j, int first, int last ) {
+		long best = Long.MAX_VALUE;
+		int bestRoot = 0;
+		for ( int r = first; r < last + 1; r++ ) {
+			long t = cells[ rowStart[ i ] + r - 1 ] + cells[ rowStart[ r + 1 ] + j ];
+			if ( t < best ) {
+				best = t;
+				bestRoot = r;
+			}
+		}
+		return bestRoot;
+	}
+}
@@ -0,0 +1,64 @@
+/**
+ * PackedRootTable stores the used upper triangle of a RootTable row by row in a single array,
+ * so it needs n(n+1)/2 ints instead of (n+1)n ints and n + 1 row objects.
+ * 
+ * @category Dynamic Programming
+ */
+public class PackedRootTable implements RootTable {
+
+	// n, the table has n + 1 rows and n columns
+	private int n;
+	// rowStart[i] + j is the position of cell [i][j] in cells
+	private int[] rowStart;
+	// the stored cells, row by row
+	private int[] cells;
+
+	/**
+	 * PackedRootTable constructor makes a table with every cell set to 0
+	 * 
+	 * @param n - the number of keys plus one ( the same n that is passed to OptimalBinarySearchTree )
+	 */
+	public PackedRootTable( int n ) {
+		this.n = n;
+		rowStart = PackedCostTable.rowStarts( n );
+		cells = new int[ ( int ) PackedCostTable.packedLength( n ) ];
+	}
+
+	/**
+	 * resize makes the table hold a different n. the arrays are kept when they are large enough,
+	 * otherwise they are replaced by arrays of the new size. the cells are not cleared
+	 * 
+	 * @param n - the number of keys plus one
+	 */
+	void resize( int n ) {
+		int length = ( int ) PackedCostTable.packedLength( n );
+		if ( rowStart.length < n + 2 ) {
+			rowStart = new int[ n + 2 ];
+		}
+		PackedCostTable.fillRowStarts( rowStart, n );
+		if ( cells.length < length ) {
+			cells = new int[ length ];
+		}
+		this.n = n;
+	}
+
+	public int getSize() {
+		return n;
+	}
+
+	public long getBytes() {
+		return ( long ) cells.length * Integer.BYTES + ( long ) rowStart.length * Integer.BYTES;
+	}
+
+	public boolean contains( int i, int j ) {
+		return i >= 1 && i <= n && j >= i - 1 && j < n;
+	}
+
+	public int get( int i, int j ) {
+		return cells[ rowStart[ i ] + j ];
+	}
+
+	public void set( int i, int j, int value ) {
+		cells[ rowStart[ i ] + j ] = value;
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * PrefixSumWeights is a CostTable of the weights w[i][j] that does not store the table. the weight
+ * of a subtree is p[i] + .. + p[j] + q[i-1] + .. + q[j], so it is worked out from two prefix sums
+ * when it is asked for. this takes O(n) memory instead of O(n^2). the weights can differ from the
+ * ones added up cell by cell in the last bits, since the sums are subtracted.
+ * 
+ * @category Dynamic Programming
+ */
+public class PrefixSumWeights implements CostTable {
+
+	// n, the table has n + 1 rows and n columns
+	private int n;
+	// upTo[j] = p[1] + .. + p[j] + q[0] + .. + q[j]
+	private double[] upTo;
+	// before[i] = p[1] + .. + p[i-1] + q[0] + .. + q[i-2], so upTo[j] - before[i] = w[i][j]
+	private double[] before;
+
+	/**
+	 * PrefixSumWeights constructor adds up the prefix sums of p and q
+	 * 
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param n - the number of keys plus one
+	 */
+	public PrefixSumWeights( double[] p, double[] q, int n ) {
+		this.n = n;
+		upTo = new double[ n ];
+		before = new double[ n + 1 ];
+		update( p, q );
+	}
+
+	/**
+	 * update adds up the prefix sums again after p or q changed
+	 * 
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes )
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 */
+	public void update( double[] p, double[] q ) {
+		double sum = 0;
+		for ( int j = 0; j < n; j++ ) {
+			if ( j > 0 ) {
+				sum += p[ j ];
+			}
+			before[ j + 1 ] = sum;
+			sum += q[ j ];
+			upTo[ j ] = sum;
+		}
+	}
+
+	/**
+	 * resize makes the weights hold a different n, keeping the arrays when they are large enough.
+	 * update has to be called before the weights are read
+	 * 
+	 * @param n - the number of keys plus one
+	 */
+	void resize( int n ) {
+		if ( upTo.length < n ) {
+			upTo = new double[ n ];
+			before = new double[ n + 1 ];
+		}
+		this.n = n;
+	}
+
+	public int getSize() {
+		return n;
+	}
+
+	public long getBytes() {
+		return ( long ) ( upTo.length + before.length ) * Double.BYTES;
+	}
+
+	public boolean contains( int i, int j ) {
+		return i >= 1 && i <= n && j >= i - 1 && j < n;
+	}
+
+	public double get( int i, int j ) {
+		return upTo[ j ] - before[ i ];
+	}
+
+	/**
+	 * set is not supported, the weights only depend on p and q
+	 */
+	public void set( int i, int j, double value ) {
+		throw new UnsupportedOperationException( "prefix sum weights are read only" );
+	}
+}
@@ -0,0 +1,50 @@
+/**
+ * RootTable is a table of ints that is indexed the same way as the r table from the book.
+ * the table has rows 0 .. n and columns 0 .. n - 1, but only the cells with 1 <= i <= n and
+ * i - 1 <= j <= n - 1 are used by the algorithm, so an implementation only has to store those.
+ * 
+ * @category Dynamic Programming
+ */
+public interface RootTable {
+
+	/**
+	 * getSize returns n, the table has n + 1 rows and n columns
+	 * 
+	 * @return - int which is n
+	 */
+	int getSize();
+
+	/**
+	 * getBytes returns the memory the table takes for its cells and indexes
+	 * 
+	 * @return - long which is the number of bytes
+	 */
+	long getBytes();
+
+	/**
+	 * contains checks if a cell is stored by the table. cells that are not stored are 0
+	 * 
+	 * @param i - row index
+	 * @param j - column index
+	 * @return - true when 1 <= i <= n and i - 1 <= j <= n - 1
+	 */
+	boolean contains( int i, int j );
+
+	/**
+	 * get returns the root of a cell that is stored by the table
+	 * 
+	 * @param i - row index
+	 * @param j - column index
+	 * @return - int which is the root of cell [i][j]
+	 */
+	int get( int i, int j );
+
+	/**
+	 * set changes the root of a cell that is stored by the table
+	 * 
+	 * @param i - row index
+	 * @param j - column index
+	 * @param value - the new root of cell [i][j]
+	 */
+	void set( int i, int j, int value );
+}
@@ -0,0 +1,48 @@
+/**
+ * RowCostTable stores the used upper triangle of a CostTable with one array per row. it takes the
+ * same n(n+1)/2 doubles as PackedCostTable, but no single array holds all of them, so it is not
+ * limited to the size of a Java array. OptimalBinarySearchTree uses it on the heap when the triangle
+ * does not fit in one array, see PackedCostTable.fits.
+ * 
+ * @category Dynamic Programming
+ */
+public class RowCostTable implements CostTable {
+
+	// n, the table has n + 1 rows and n columns
+	private int n;
+	// rows[i][j - i + 1] is cell [i][j], row i holds columns i - 1 .. n - 1
+	private double[][] rows;
+
+	/**
+	 * RowCostTable constructor makes a table with every cell set to 0
+	 * 
+	 * @param n - the number of keys plus one ( the same n that is passed to OptimalBinarySearchTree )
+	 */
+	public RowCostTable( int n ) {
+		this.n = n;
+		rows = new double[ n + 1 ][];
+		for ( int i = 1; i < ( n + 1 ); i++ ) {
+			rows[ i ] = new double[ n - i + 1 ];
+		}
+	}
+
+	public int getSize() {
+		return n;
+	}
+
+	public long getBytes() {
+		return PackedCostTable.cellCount( n ) * Double.BYTES + ( long ) ( n + 1 ) * Long.BYTES;
+	}
+
+	public boolean contains( int i, int j ) {
+		return i >= 1 && i <= n && j >= i - 1 && j < n;
+	}
+
+	public double get( int i, int j ) {
+		return rows[ i ][ j - i + 1 ];
+	}
+
+	public void set( int i, int j, double value ) {
+		rows[ i ][ j - i + 1 ] = value;
+	}
+}
@@ -0,0 +1,46 @@
+/**
+ * RowRootTable stores the used upper triangle of a RootTable with one array per row, like
+ * RowCostTable, so it is not limited to the size of a Java array like PackedRootTable.
+ * 
+ * @category Dynamic Programming
+ */
+public class RowRootTable implements RootTable {
+
+	// n, the table has n + 1 rows and n columns
+	private int n;
+	// rows[i][j - i + 1] is cell [i][j], row i holds columns i - 1 .. n - 1
+	private int[][] rows;
+
+	/**
+	 * RowRootTable constructor makes a table with every cell set to 0
+	 * 
+	 * @param n - the number of keys plus one ( the same n that is passed to OptimalBinarySearchTree )
+	 */
+	public RowRootTable( int n ) {
+		this.n = n;
+		rows = new int[ n + 1 ][];
+		for ( int i = 1; i < ( n + 1 ); i++ ) {
+			rows[ i ] = new int[ n - i + 1 ];
+		}
+	}
+
+	public int getSize() {
+		return n;
+	}
+
+	public long getBytes() {
+		return PackedCostTable.cellCount( n ) * Integer.BYTES + ( long ) ( n + 1 ) * Long.BYTES;
+	}
+
+	public boolean contains( int i, int j ) {
+		return i >= 1 && i <= n && j >= i - 1 && j < n;
+	}
+
+	public int get( int i, int j ) {
+		return rows[ i ][ j - i + 1 ];
+	}
+
+	public void set( int i, int j, int value ) {
+		rows[ i ][ j - i + 1 ] = value;
+	}
+}
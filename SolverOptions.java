@@ -0,0 +1,269 @@
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * SolverOptions holds the choices for how OptimalBinarySearchTree calculates the tree. a new
+ * SolverOptions picks the engine automatically, stores the tables as packed triangles on the heap and
+ * calculates the tables on the calling thread, and makes the tree out of Node objects.
+ * 
+ * @category Dynamic Programming
+ */
+public class SolverOptions {
+
+	// the engine, or null to pick the alphabetic engine when every p[i] is zero and Knuth's otherwise
+	private OptimalBinarySearchTree.Engine engine;
+	// how the expected costs table is stored
+	private OptimalBinarySearchTree.Layout layout;
+	// how the finished tree is stored
+	private OptimalBinarySearchTree.TreeForm treeForm;
+	// where the tables are kept, and the directory of the file for MAPPED
+	private OptimalBinarySearchTree.Storage storage;
+	private Path storageDirectory;
+	// the type of the cells of the expected costs and weights tables
+	private OptimalBinarySearchTree.Precision precision;
+	// true to work out the weights from prefix sums instead of storing the weights table
+	private boolean prefixSumWeights;
+	// pool that the cells of each diagonal are split over, or null to use the calling thread
+	private ForkJoinPool pool;
+	// the smallest number of cells of a diagonal that is handed to a task of its own
+	private int parallelChunk;
+	// told about every phase of the build, or null
+	private BuildListener listener;
+	// the most levels of keys the HEIGHT_LIMITED engine may use
+	private int maxHeight;
+
+	/**
+	 * SolverOptions constructor with the default choices
+	 */
+	public SolverOptions() {
+		this( null );
+	}
+
+	/**
+	 * SolverOptions constructor with a given engine
+	 * 
+	 * @param engine - the engine, or null to pick one automatically
+	 */
+	public SolverOptions( OptimalBinarySearchTree.Engine engine ) {
+		this.engine = engine;
+		layout = OptimalBinarySearchTree.Layout.PACKED;
+		treeForm = OptimalBinarySearchTree.TreeForm.NODES;
+		storage = OptimalBinarySearchTree.Storage.HEAP;
+		storageDirectory = Paths.get( System.getProperty( "java.io.tmpdir" ) );
+		precision = OptimalBinarySearchTree.Precision.DOUBLE;
+		prefixSumWeights = false;
+		pool = null;
+		parallelChunk = 256;
+		listener = null;
+		maxHeight = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * setEngine sets the engine used to calculate the tree
+	 * 
+	 * @param engine - the engine, or null to pick one automatically
+	 */
+	public void setEngine( OptimalBinarySearchTree.Engine engine ) {
+		this.engine = engine;
+	}
+
+	/**
+	 * setLayout sets how the expected costs table is stored
+	 * 
+	 * @param layout - PACKED, or MIRRORED for contiguous reads in the inner loop
+	 */
+	public void setLayout( OptimalBinarySearchTree.Layout layout ) {
+		this.layout = layout;
+	}
+	
+	/**
+	 * setTreeForm sets how the finished tree is stored
+	 * 
+	 * @param treeForm - NODES for Node objects, or FLAT for a FlatTree
+	 */
+	public void setTreeForm( OptimalBinarySearchTree.TreeForm treeForm ) {
+		this.treeForm = treeForm;
+	}
+	
+	/**
+	 * setStorage sets where the tables are kept
+	 * 
+	 * @param storage - HEAP, DIRECT for direct buffers or MAPPED for a mapped temporary file
+	 */
+	public void setStorage( OptimalBinarySearchTree.Storage storage ) {
+		this.storage = storage;
+	}
+	
+	/**
+	 * setStorageDirectory sets the directory of the temporary file for MAPPED storage
+	 * 
+	 * @param storageDirectory - the directory, java.io.tmpdir unless it is set
+	 */
+	public void setStorageDirectory( Path storageDirectory ) {
+		this.storageDirectory = storageDirectory;
+	}
+	
+	/**
+	 * setPrecision sets the type of the cells of the expected costs and weights tables
+	 * 
+	 * @param precision - DOUBLE, or FLOAT for half the memory
+	 */
+	public void setPrecision( OptimalBinarySearchTree.Precision precision ) {
+		this.precision = precision;
+	}
+	
+	/**
+	 * setPrefixSumWeights chooses between storing the weights table and working out each weight
+	 * from two prefix sums. the prefix sums save a whole n^2 table
+	 * 
+	 * @param prefixSumWeights - true to use prefix sums
+	 */
+	public void setPrefixSumWeights( boolean prefixSumWeights ) {
+		this.prefixSumWeights = prefixSumWeights;
+	}
+
+	/**
+	 * setPool sets the pool that each diagonal of the tables is split over. the result is the
+	 * same as on a single thread
+	 * 
+	 * @param pool - ForkJoinPool to use, or null to calculate everything on the calling thread
+	 */
+	public void setPool( ForkJoinPool pool ) {
+		this.pool = pool;
+	}
+	
+	/**
+	 * setParallelChunk sets the smallest number of cells that is handed to a task of its own. a
+	 * diagonal with fewer than two chunks is calculated on the calling thread
+	 * 
+	 * @param parallelChunk - number of cells, at least 1
+	 */
+	public void setParallelChunk( int parallelChunk ) {
+		if ( parallelChunk < 1 ) {
+			throw new IllegalArgumentException( "the parallel chunk must be at least 1" );
+		}
+		this.parallelChunk = parallelChunk;
+	}
+
+	/**
+	 * setListener sets the listener that is told about every phase of the build
+	 * 
+	 * @param listener - BuildListener to tell, or null for none
+	 */
+	public void setListener( BuildListener listener ) {
+		this.listener = listener;
+	}
+
+	/**
+	 * setMaxHeight sets the most levels of keys the HEIGHT_LIMITED engine may use, which is the most
+	 * comparisons a search can take
+	 * 
+	 * @param maxHeight - number of levels, at least 1
+	 */
+	public void setMaxHeight( int maxHeight ) {
+		if ( maxHeight < 1 ) {
+			throw new IllegalArgumentException( "the height limit must be at least 1" );
+		}
+		this.maxHeight = maxHeight;
+	}
+
+	/**
+	 * getEngine returns the engine used to calculate the tree
+	 * 
+	 * @return - the engine, or null when it is picked automatically
+	 */
+	public OptimalBinarySearchTree.Engine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * getLayout returns how the expected costs table is stored
+	 * 
+	 * @return - the Layout of the expected costs table
+	 */
+	public OptimalBinarySearchTree.Layout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * getTreeForm returns how the finished tree is stored
+	 * 
+	 * @return - the TreeForm of the tree
+	 */
+	public OptimalBinarySearchTree.TreeForm getTreeForm() {
+		return treeForm;
+	}
+
+	/**
+	 * getStorage returns where the tables are kept
+	 * 
+	 * @return - the Storage of the tables
+	 */
+	public OptimalBinarySearchTree.Storage getStorage() {
+		return storage;
+	}
+
+	/**
+	 * getStorageDirectory returns the directory of the temporary file for MAPPED storage
+	 * 
+	 * @return - Path of the directory
+	 */
+	public Path getStorageDirectory() {
+		return storageDirectory;
+	}
+
+	/**
+	 * getPrecision returns the type of the cells of the expected costs and weights tables
+	 * 
+	 * @return - the Precision of the tables
+	 */
+	public OptimalBinarySearchTree.Precision getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * isPrefixSumWeights returns true when the weights are worked out from prefix sums
+	 * 
+	 * @return - boolean which is true for prefix sums
+	 */
+	public boolean isPrefixSumWeights() {
+		return prefixSumWeights;
+	}
+
+	/**
+	 * getPool returns the pool that each diagonal is split over
+	 * 
+	 * @return - ForkJoinPool, or null when everything is calculated on the calling thread
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * getParallelChunk returns the smallest number of cells that is handed to a task of its own
+	 * 
+	 * @return - int which is the number of cells
+	 */
+	public int getParallelChunk() {
+		return parallelChunk;
+	}
+
+	/**
+	 * getListener returns the listener that is told about every phase of the build
+	 * 
+	 * @return - BuildListener, or null when there is none
+	 */
+	public BuildListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * getMaxHeight returns the most levels of keys the HEIGHT_LIMITED engine may use
+	 * 
+	 * @return - int which is the number of levels, Integer.MAX_VALUE when there is no limit
+	 */
+	public int getMaxHeight() {
+		return maxHeight;
+	}
+}
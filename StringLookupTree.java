@@ -0,0 +1,169 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * StringLookupTree is a LookupTree for string keys, kept as their UTF-8 bytes. the optimal tree only
+ * depends on the order of the keys, so it is built for their positions and the keys are put in
+ * afterwards, see LongLookupTree. the keys are ordered by their bytes as unsigned numbers, which for
+ * strings is the order of their code points.
+ *
+ * every node on the way down is between the nearest ancestor the search went right at and the nearest
+ * ancestor it went left at. when the key shares its first a bytes with the first of them and its first b
+ * bytes with the second, every key between them shares the first min( a, b ) bytes with the key too, so
+ * the comparison at a node starts after those bytes. a search for a long key does not compare the same
+ * leading bytes again at every level.
+ *
+ * @category Dynamic Programming
+ */
+public class StringLookupTree {
+
+	// the ints in the links of a node
+	private static final int LEFT = 0;
+	private static final int RIGHT = 1;
+	private static final int RANK = 2;
+	private static final int LINKS = 3;
+
+	// the keys of the nodes in breadth first order
+	private final byte[][] keys;
+	// the left child, right child and position of the key of every node, in the same order
+	private final int[] links;
+	// the number of nodes
+	private final int size;
+
+	/**
+	 * StringLookupTree constructor copies the shape of a LookupTree and takes the keys by position
+	 *
+	 * @param shape - the tree whose shape is copied, its keys are not used
+	 * @param keys - the keys in ascending order of their bytes, keys[k] is the key at position k. the
+	 *               arrays are not copied and must not be changed
+	 * @throws IllegalArgumentException when there is not a key for every node or the keys are not ascending
+	 */
+	public StringLookupTree( LookupTree shape, byte[][] keys ) {
+		size = shape.size();
+		if ( keys.length != size ) {
+			throw new IllegalArgumentException( "the tree has " + size + " nodes but there are " + keys.length + " keys" );
+		}
+		for ( int k = 1; k < size; k++ ) {
+			if ( Arrays.compareUnsigned( keys[ k ], keys[ k - 1 ] ) <= 0 ) {
+				throw new IllegalArgumentException( "the keys are not in ascending order at keys[" + k + "]" );
+			}
+		}
+		this.keys = new byte[ size ][];
+		links = new int[ size * LINKS ];
+		int[] records = shape.records();
+		for ( int b = 0; b < size; b++ ) {
+			int record = b * LookupTree.RECORD;
+			int rank = records[ record + LookupTree.RANK ];
+			this.keys[ b ] = keys[ rank ];
+			links[ b * LINKS + LEFT ] = records[ record + LookupTree.LEFT ];
+			links[ b * LINKS + RIGHT ] = records[ record + LookupTree.RIGHT ];
+			links[ b * LINKS + RANK ] = rank;
+		}
+	}
+
+	/**
+	 * StringLookupTree constructor copies the shape of a LookupTree and takes the keys by position
+	 *
+	 * @param shape - the tree whose shape is copied, its keys are not used
+	 * @param keys - the keys in ascending order of their code points, keys[k] is the key at position k
+	 * @throws IllegalArgumentException when there is not a key for every node or the keys are not ascending
+	 */
+	public StringLookupTree( LookupTree shape, String[] keys ) {
+		this( shape, encode( keys ) );
+	}
+
+	/**
+	 * build makes the optimal tree for string keys
+	 *
+	 * @param keys - the keys in ascending order of their code points
+	 * @param p - array of doubles that is the probabilities that Pi is searched for ( real nodes ), p[k + 1] is for keys[k]
+	 * @param q - array of doubles that is the probabilities that Qi is searched for ( dummy nodes )
+	 * @param options - SolverOptions for the build
+	 * @return - StringLookupTree for the keys
+	 */
+	public static StringLookupTree build( String[] keys, double[] p, double[] q, SolverOptions options ) {
+		return new StringLookupTree( LookupTree.forRanks( keys.length, p, q, options ), keys );
+	}
+
+	/**
+	 * search looks for a key by walking down the tree, see LookupTree.search
+	 *
+	 * @param key - the bytes of the key to look for
+	 * @return - the position of the key when it is found, otherwise -( gap ) - 1
+	 */
+	public int search( byte[] key ) {
+		if ( size == 0 ) {
+			return -1;
+		}
+		int node = 0;
+		// the bytes the key shares with the nearest ancestor it is greater than, and less than
+		int low = 0;
+		int high = 0;
+		while ( true ) {
+			byte[] nodeKey = keys[ node ];
+			int common = Math.min( low, high );
+			int limit = Math.min( key.length, nodeKey.length );
+			while ( common < limit && key[ common ] == nodeKey[ common ] ) {
+				common++;
+			}
+			boolean greater;
+			if ( common < limit ) {
+				greater = ( key[ common ] & 0xFF ) > ( nodeKey[ common ] & 0xFF );
+			} else if ( key.length == nodeKey.length ) {
+				return links[ node * LINKS + RANK ];
+			} else {
+				// one key starts with the other, the shorter one comes first
+				greater = key.length > nodeKey.length;
+			}
+			int next;
+			if ( greater ) {
+				next = links[ node * LINKS + RIGHT ];
+				low = common;
+			} else {
+				next = links[ node * LINKS + LEFT ];
+				high = common;
+			}
+			if ( next < 0 ) {
+				return next;
+			}
+			node = next;
+		}
+	}
+
+	/**
+	 * search looks for a key by walking down the tree, see LookupTree.search
+	 *
+	 * @param key - the key to look for
+	 * @return - the position of the key when it is found, otherwise -( gap ) - 1
+	 */
+	public int search( String key ) {
+		return search( key.getBytes( StandardCharsets.UTF_8 ) );
+	}
+
+	/**
+	 * contains checks if a key is in the tree
+	 *
+	 * @param key - the key to look for
+	 * @return - true when the key is found
+	 */
+	public boolean contains( String key ) {
+		return search( key ) >= 0;
+	}
+
+	/**
+	 * size returns the number of keys in the tree
+	 *
+	 * @return - int which is the number of keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	private static byte[][] encode( String[] keys ) {
+		byte[][] encoded = new byte[ keys.length ][];
+		for ( int k = 0; k < keys.length; k++ ) {
+			encoded[ k ] = keys[ k ].getBytes( StandardCharsets.UTF_8 );
+		}
+		return encoded;
+	}
+}
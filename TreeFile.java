@@ -0,0 +1,358 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * TreeFile saves a built tree so that a later run can search it without calculating it again. load
+ * maps the file and searches the mapped bytes directly, the same way LookupTree searches its array,
+ * so loading takes the time of mapping the file and nothing is made for the nodes. the file is, in
+ * big endian order:
+ *
+ *   int     MAGIC       marks a tree file
+ *   int     VERSION     the version of the format
+ *   int     size        the number of keys
+ *   int     n           n of the roots table, or 0 when the table was not saved
+ *   double  cost        the expected cost of the tree
+ *   size records of four ints, the records of LookupTree in breadth first order
+ *     int   key         the key of the node
+ *     int   left        the record of the left child, or -( gap ) - 1
+ *     int   right       the record of the right child, or -( gap ) - 1
+ *     int   rank        the position of the key
+ *   n(n+1)/2 ints, the roots table row by row, cells [i][i-1] .. [i][n-1] for i = 1 .. n
+ *
+ * @category Dynamic Programming
+ */
+public class TreeFile {
+
+	// "OBST"
+	private static final int MAGIC = 0x4F425354;
+	private static final int VERSION = 1;
+	// bytes before the first record, and in every record
+	private static final int HEADER = 24;
+	private static final int RECORD = 16;
+	// the ints in the record of a node
+	private static final int KEY = 0;
+	private static final int LEFT = 4;
+	private static final int RIGHT = 8;
+	private static final int RANK = 12;
+
+	// the mapped records
+	private ByteBuffer nodes;
+	// the number of nodes
+	private int size;
+	// the expected cost of the tree
+	private double cost;
+	// the mapped roots table, or null
+	private RootTable roots;
+
+	private TreeFile( ByteBuffer nodes, int size, double cost, RootTable roots ) {
+		this.nodes = nodes;
+		this.size = size;
+		this.cost = cost;
+		this.roots = roots;
+	}
+
+	/**
+	 * write saves a tree
+	 *
+	 * @param file - the file to write, it is replaced when it exists
+	 * @param tree - the tree to save
+	 * @param saveRoots - true to save the roots table as well, when the engine made one
+	 * @throws IOException - when the file can not be written
+	 */
+	public static void write( Path file, OptimalBinarySearchTree tree, boolean saveRoots ) throws IOException {
+		LookupTree lookup = tree.getLookupTree();
+		RootTable table = saveRoots ? tree.getRoots() : null;
+		int[] records = lookup.records();
+		try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect( 1 << 16 );
+			buffer.putInt( MAGIC );
+			buffer.putInt( VERSION );
+			buffer.putInt( lookup.size() );
+			buffer.putInt( table == null ? 0 : table.getSize() );
+			buffer.putDouble( tree.getCost() );
+			for ( int record : records ) {
+				if ( !buffer.hasRemaining() ) {
+					drain( channel, buffer );
+				}
+				buffer.putInt( record );
+			}
+			if ( table != null ) {
+				int n = table.getSize();
+				for ( int i = 1; i < ( n + 1 ); i++ ) {
+					for ( int j = i - 1; j < n; j++ ) {
+						if ( !buffer.hasRemaining() ) {
+							drain( channel, buffer );
+						}
+						buffer.putInt( table.get( i, j ) );
+					}
+				}
+			}
+			drain( channel, buffer );
+		}
+	}
+
+	/**
+	 * load maps a saved tree. the header and every record are checked before the tree is searched, so
+	 * a search of a damaged file can not fail or loop. the roots table is not read, every root is
+	 * checked when it is read instead
+	 *
+	 * @param file - the file to load
+	 * @return - TreeFile which searches the mapped file
+	 * @throws IOException - when the file can not be read, is not a tree file or is damaged
+	 */
+	public static TreeFile load( Path file ) throws IOException {
+		return load( file, false );
+	}
+
+	/**
+	 * load maps a saved tree, and can check the whole roots table before it returns. that reads all
+	 * n(n+1)/2 roots, which takes O(n^2) time instead of the O(n) of the records
+	 *
+	 * @param file - the file to load
+	 * @param verifyRoots - true to check every saved root now
+	 * @return - TreeFile which searches the mapped file
+	 * @throws IOException - when the file can not be read, is not a tree file or is damaged
+	 */
+	public static TreeFile load( Path file, boolean verifyRoots ) throws IOException {
+		try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+			long length = channel.size();
+			if ( length < HEADER ) {
+				throw new IOException( file + " is too short to be a tree file" );
+			}
+			ByteBuffer header = channel.map( FileChannel.MapMode.READ_ONLY, 0, HEADER );
+			if ( header.getInt() != MAGIC ) {
+				throw new IOException( file + " is not a tree file" );
+			}
+			int version = header.getInt();
+			if ( version != VERSION ) {
+				throw new IOException( file + " has version " + version + " of the format, only " + VERSION + " can be read" );
+			}
+			int size = header.getInt();
+			int n = header.getInt();
+			double cost = header.getDouble();
+			if ( size < 0 || ( n != 0 && n != size + 1 ) ) {
+				throw new IOException( file + " has a header with " + size + " keys and a roots table for n = " + n );
+			}
+			long nodeBytes = ( long ) size * RECORD;
+			long rootCells = PackedCostTable.cellCount( n );
+			if ( rootCells > length / 4 || length != HEADER + nodeBytes + 4 * rootCells ) {
+				throw new IOException( file + " does not have the length its header gives" );
+			}
+			if ( nodeBytes > Integer.MAX_VALUE ) {
+				throw new IOException( file + " has too many nodes to map at once" );
+			}
+
+			ByteBuffer nodes = channel.map( FileChannel.MapMode.READ_ONLY, HEADER, nodeBytes );
+			checkRecords( file, nodes, size );
+			MappedRootTable roots = null;
+			if ( n > 0 ) {
+				roots = new MappedRootTable( channel, HEADER + nodeBytes, n );
+				if ( verifyRoots ) {
+					roots.check( file );
+				}
+			}
+			return new TreeFile( nodes, size, cost, roots );
+		}
+	}
+
+	/**
+	 * search looks for a key by walking down the mapped tree, see LookupTree.search
+	 *
+	 * @param key - the key to look for
+	 * @return - the position of the key when it is found, otherwise -( gap ) - 1
+	 */
+	public int search( int key ) {
+		if ( size == 0 ) {
+			return -1;
+		}
+		int record = 0;
+		while ( true ) {
+			int nodeKey = nodes.getInt( record + KEY );
+			if ( key == nodeKey ) {
+				return nodes.getInt( record + RANK );
+			}
+			int next = nodes.getInt( record + ( key > nodeKey ? RIGHT : LEFT ) );
+			if ( next < 0 ) {
+				return next;
+			}
+			record = next * RECORD;
+		}
+	}
+
+	/**
+	 * contains checks if a key is in the tree
+	 *
+	 * @param key - the key to look for
+	 * @return - true when the key is found
+	 */
+	public boolean contains( int key ) {
+		return search( key ) >= 0;
+	}
+
+	/**
+	 * size returns the number of keys in the tree
+	 *
+	 * @return - int which is the number of keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * getCost returns the expected cost of the saved tree
+	 *
+	 * @return - double which is the expected cost
+	 */
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * getRoots returns the saved roots table, read from the mapped file
+	 *
+	 * @return - RootTable which is the roots table, or null when it was not saved. get throws an
+	 *           IllegalStateException for a root that is out of range
+	 */
+	public RootTable getRoots() {
+		return roots;
+	}
+
+	/**
+	 * checkRecords makes sure every record can be searched. a child comes after its parent in
+	 * breadth first order, so every search moves forward through the records and ends, and a missing
+	 * child and a rank are in the range of the keys
+	 *
+	 * @param file - the file, for the message
+	 * @param nodes - the mapped records
+	 * @param size - the number of records
+	 * @throws IOException - when a record is out of range
+	 */
+	private static void checkRecords( Path file, ByteBuffer nodes, int size ) throws IOException {
+		for ( int b = 0; b < size; b++ ) {
+			int record = b * RECORD;
+			int rank = nodes.getInt( record + RANK );
+			if ( rank < 0 || rank >= size ) {
+				throw new IOException( file + " has record " + b + " with rank " + rank + " outside of 0 .. " + ( size - 1 ) );
+			}
+			checkChild( file, b, nodes.getInt( record + LEFT ), size );
+			checkChild( file, b, nodes.getInt( record + RIGHT ), size );
+		}
+	}
+
+	/**
+	 * checkChild makes sure a child is a later record or a dummy key 0 .. size
+	 *
+	 * @param file - the file, for the message
+	 * @param b - the record of the parent
+	 * @param child - the child as it is stored
+	 * @param size - the number of records
+	 * @throws IOException - when the child is out of range
+	 */
+	private static void checkChild( Path file, int b, int child, int size ) throws IOException {
+		boolean valid = child >= 0 ? child > b && child < size : child >= -( size + 1 );
+		if ( !valid ) {
+			throw new IOException( file + " has record " + b + " with a child " + child + " that is out of range" );
+		}
+	}
+
+	private static void drain( FileChannel channel, ByteBuffer buffer ) throws IOException {
+		buffer.flip();
+		while ( buffer.hasRemaining() ) {
+			channel.write( buffer );
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * MappedRootTable reads a packed roots table out of a mapped file. the table can be larger
+	 * than one mapping can hold, and than one Java array, so it is mapped in parts of PART ints and
+	 * the positions of the cells are longs
+	 */
+	private static class MappedRootTable implements RootTable {
+
+		private static final int SHIFT = 28;
+		private static final int PART = 1 << SHIFT;
+
+		private int n;
+		// rowStart[i] + j is the position of cell [i][j], see PackedCostTable.rowStarts
+		private long[] rowStart;
+		private ByteBuffer[] parts;
+
+		MappedRootTable( FileChannel channel, long offset, int n ) throws IOException {
+			this.n = n;
+			rowStart = new long[ n + 2 ];
+			long start = 0;
+			for ( int i = 1; i < ( n + 2 ); i++ ) {
+				rowStart[ i ] = start - ( i - 1 );
+				start += n - i + 1;
+			}
+			long cells = PackedCostTable.cellCount( n );
+			parts = new ByteBuffer[ ( int ) ( ( cells + PART - 1 ) >>> SHIFT ) ];
+			for ( int part = 0; part < parts.length; part++ ) {
+				long first = ( long ) part << SHIFT;
+				long count = Math.min( PART, cells - first );
+				parts[ part ] = channel.map( FileChannel.MapMode.READ_ONLY, offset + 4 * first, 4 * count );
+			}
+		}
+
+		public int getSize() {
+			return n;
+		}
+
+		public long getBytes() {
+			long bytes = ( long ) rowStart.length * Long.BYTES;
+			for ( ByteBuffer part : parts ) {
+				bytes += part.capacity();
+			}
+			return bytes;
+		}
+
+		public boolean contains( int i, int j ) {
+			return i >= 1 && i <= n && j >= i - 1 && j < n;
+		}
+
+		/**
+		 * get reads a root out of the file and checks it, since load only reads the whole table when
+		 * it is asked to. the root of keys i .. j has to be one of them
+		 *
+		 * @throws IllegalStateException when the saved root is out of range
+		 */
+		public int get( int i, int j ) {
+			int root = read( i, j );
+			if ( j >= i && ( root < i || root > j ) ) {
+				throw new IllegalStateException( "the saved root of keys " + i + " .. " + j + " is " + root );
+			}
+			return root;
+		}
+
+		private int read( int i, int j ) {
+			long cell = rowStart[ i ] + j;
+			return parts[ ( int ) ( cell >>> SHIFT ) ].getInt( 4 * ( int ) ( cell & ( PART - 1 ) ) );
+		}
+
+		/**
+		 * check makes sure the root of every range of keys i .. j is one of those keys
+		 *
+		 * @param file - the file, for the message
+		 * @throws IOException - when a root is out of range
+		 */
+		void check( Path file ) throws IOException {
+			for ( int i = 1; i < n; i++ ) {
+				for ( int j = i; j < n; j++ ) {
+					int root = read( i, j );
+					if ( root < i || root > j ) {
+						throw new IOException( file + " has root " + root + " for keys " + i + " .. " + j );
+					}
+				}
+			}
+		}
+
+		public void set( int i, int j, int value ) {
+			throw new UnsupportedOperationException( "a loaded roots table can not be changed" );
+		}
+	}
+}
@@ -0,0 +1,247 @@
+/**
+ * WeightSequence is the working sequence of weights used by the Garsia-Wachs algorithm in
+ * OptimalBinarySearchTree. it is an implicit treap ( a randomized balanced tree ordered by position ),
+ * so reading, removing and inserting at a position, and finding the closest weight to the left that is
+ * at least a given value, all take O(log n) time. every element is identified by its node number, which
+ * is also the node number used to build the tree.
+ *
+ * @category Dynamic Programming
+ */
+class WeightSequence {
+
+	// marks a missing child
+	private static final int NONE = -1;
+
+	// weight of every node
+	private double[] weight;
+	// largest weight in the subtree of every node
+	private double[] max;
+	// random priority of every node, a parent always has a larger priority than its children
+	private int[] priority;
+	// number of nodes in the subtree of every node
+	private int[] size;
+	// left and right children of every node
+	private int[] left;
+	private int[] right;
+	// the root of the treap
+	private int root;
+	// state of the random number generator for the priorities
+	private int seed;
+
+	/**
+	 * WeightSequence constructor makes an empty sequence
+	 *
+	 * @param capacity - the number of different node numbers that will be used
+	 */
+	WeightSequence( int capacity ) {
+		weight = new double[ capacity ];
+		max = new double[ capacity ];
+		priority = new int[ capacity ];
+		size = new int[ capacity ];
+		left = new int[ capacity ];
+		right = new int[ capacity ];
+		root = NONE;
+		seed = 0x2545F491;
+	}
+
+	/**
+	 * size returns the number of weights in the sequence
+	 *
+	 * @return - int which is the length of the sequence
+	 */
+	int size() {
+		return sizeOf( root );
+	}
+
+	/**
+	 * add appends a node to the end of the sequence
+	 *
+	 * @param node - the node number
+	 * @param value - the weight of the node
+	 */
+	void add( int node, double value ) {
+		root = merge( root, makeNode( node, value ) );
+	}
+
+	/**
+	 * insert puts a node at the given position, moving the nodes from that position one place right
+	 *
+	 * @param index - the position of the new node
+	 * @param node - the node number
+	 * @param value - the weight of the node
+	 */
+	void insert( int index, int node, double value ) {
+		long parts = split( root, index );
+		root = merge( merge( first( parts ), makeNode( node, value ) ), second( parts ) );
+	}
+
+	/**
+	 * removePair removes the two nodes at position index and index + 1
+	 *
+	 * @param index - the position of the first node
+	 */
+	void removePair( int index ) {
+		long parts = split( root, index );
+		long rest = split( second( parts ), 2 );
+		root = merge( first( parts ), second( rest ) );
+	}
+
+	/**
+	 * nodeAt returns the node number at a position
+	 *
+	 * @param index - the position
+	 * @return - int which is the node number
+	 */
+	int nodeAt( int index ) {
+		int node = root;
+		while ( true ) {
+			int leftSize = sizeOf( left[ node ] );
+			if ( index < leftSize ) {
+				node = left[ node ];
+			} else if ( index == leftSize ) {
+				return node;
+			} else {
+				index -= leftSize + 1;
+				node = right[ node ];
+			}
+		}
+	}
+
+	/**
+	 * weightAt returns the weight at a position
+	 *
+	 * @param index - the position
+	 * @return - double which is the weight
+	 */
+	double weightAt( int index ) {
+		return weight[ nodeAt( index ) ];
+	}
+
+	/**
+	 * lastAtLeast finds the closest position to the left of limit whose weight is at least value
+	 *
+	 * @param limit - the search only looks at positions 0 .. limit - 1
+	 * @param value - the smallest weight that is accepted
+	 * @return - int which is the largest such position, or -1 when there is none
+	 */
+	int lastAtLeast( int limit, double value ) {
+		long parts = split( root, limit );
+		int found = -1;
+		int node = first( parts );
+		int offset = 0;
+		while ( node != NONE && max[ node ] >= value ) {
+			if ( right[ node ] != NONE && max[ right[ node ] ] >= value ) {
+				offset += sizeOf( left[ node ] ) + 1;
+				node = right[ node ];
+			} else if ( weight[ node ] >= value ) {
+				found = offset + sizeOf( left[ node ] );
+				break;
+			} else {
+				node = left[ node ];
+			}
+		}
+		root = merge( first( parts ), second( parts ) );
+		return found;
+	}
+
+	/**
+	 * makeNode sets up a node that is not in the treap yet
+	 *
+	 * @param node - the node number
+	 * @param value - the weight of the node
+	 * @return - int which is the node number
+	 */
+	private int makeNode( int node, double value ) {
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		weight[ node ] = value;
+		max[ node ] = value;
+		priority[ node ] = seed;
+		size[ node ] = 1;
+		left[ node ] = NONE;
+		right[ node ] = NONE;
+		return node;
+	}
+
+	/**
+	 * split cuts a treap into the first count nodes and the rest. both parts are packed in a long
+	 * since Java can not return two values
+	 *
+	 * @param node - the root of the treap
+	 * @param count - the number of nodes in the first part
+	 * @return - long which holds both roots, read with first and second
+	 */
+	private long split( int node, int count ) {
+		if ( node == NONE ) {
+			return pack( NONE, NONE );
+		}
+		int leftSize = sizeOf( left[ node ] );
+		if ( count <= leftSize ) {
+			long parts = split( left[ node ], count );
+			left[ node ] = second( parts );
+			update( node );
+			return pack( first( parts ), node );
+		} else {
+			long parts = split( right[ node ], count - leftSize - 1 );
+			right[ node ] = first( parts );
+			update( node );
+			return pack( node, second( parts ) );
+		}
+	}
+
+	/**
+	 * merge joins two treaps, every node of a comes before every node of b
+	 *
+	 * @param a - the root of the first treap
+	 * @param b - the root of the second treap
+	 * @return - int which is the root of the joined treap
+	 */
+	private int merge( int a, int b ) {
+		if ( a == NONE ) {
+			return b;
+		} else if ( b == NONE ) {
+			return a;
+		} else if ( priority[ a ] > priority[ b ] ) {
+			right[ a ] = merge( right[ a ], b );
+			update( a );
+			return a;
+		} else {
+			left[ b ] = merge( a, left[ b ] );
+			update( b );
+			return b;
+		}
+	}
+
+	/**
+	 * update recalculates the size and largest weight of a subtree after its children changed
+	 *
+	 * @param node - the root of the subtree
+	 */
+	private void update( int node ) {
+		size[ node ] = 1 + sizeOf( left[ node ] ) + sizeOf( right[ node ] );
+		max[ node ] = weight[ node ];
+		if ( left[ node ] != NONE && max[ left[ node ] ] > max[ node ] ) {
+			max[ node ] = max[ left[ node ] ];
+		}
+		if ( right[ node ] != NONE && max[ right[ node ] ] > max[ node ] ) {
+			max[ node ] = max[ right[ node ] ];
+		}
+	}
+
+	private int sizeOf( int node ) {
+		return node == NONE ? 0 : size[ node ];
+	}
+
+	private static long pack( int a, int b ) {
+		return ( ( long ) a << 32 ) | ( b & 0xFFFFFFFFL );
+	}
+
+	private static int first( long parts ) {
+		return ( int ) ( parts >> 32 );
+	}
+
+	private static int second( long parts ) {
+		return ( int ) parts;
+	}
+}